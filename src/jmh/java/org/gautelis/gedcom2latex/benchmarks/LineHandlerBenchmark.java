@@ -0,0 +1,69 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.LineHandler;
+import org.gautelis.gedcom2latex.LineTokenizer;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building structures from lines that are already tokenized, i.e. {@link LineHandler} without {@link LineTokenizer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LineHandlerBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int individuals;
+
+    // Tokenized lines, where continuation lines have level -1 and only data
+    private long[] levels;
+    private String[] pointers;
+    private String[] tags;
+    private String[] data;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> lines = Synthetic.lines(individuals);
+        levels = new long[lines.size()];
+        pointers = new String[lines.size()];
+        tags = new String[lines.size()];
+        data = new String[lines.size()];
+
+        LineTokenizer tokenizer = new LineTokenizer();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (tokenizer.tokenize(line)) {
+                levels[i] = tokenizer.getLevel();
+                pointers[i] = tokenizer.getPointer();
+                tags[i] = tokenizer.getTag();
+                data[i] = tokenizer.getData();
+            } else {
+                levels[i] = -1L;
+                data[i] = line;
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Collection<Structure>> accept() {
+        Map<String, Structure> index = new HashMap<>();
+        Map<String, Collection<Structure>> structures = new HashMap<>();
+        LineHandler handler = new LineHandler(index, structures);
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] < 0L) {
+                handler.accept(data[i]);
+            } else {
+                handler.accept(levels[i], pointers[i], tags[i], data[i]);
+            }
+        }
+        handler.finish();
+        return structures;
+    }
+}
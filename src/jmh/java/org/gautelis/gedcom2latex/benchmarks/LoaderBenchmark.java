@@ -0,0 +1,59 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.LineHandler;
+import org.gautelis.gedcom2latex.Loader;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, i.e. tokenizing lines and building structures, from memory and from file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int individuals;
+
+    private List<String> lines;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        lines = Synthetic.lines(individuals);
+        Path path = Synthetic.file(individuals);
+        file = path.toFile();
+    }
+
+    @Benchmark
+    public Map<String, Collection<Structure>> accept() {
+        Map<String, Structure> index = new HashMap<>();
+        Map<String, Collection<Structure>> structures = new HashMap<>();
+        LineHandler handler = new LineHandler(index, structures);
+        Loader loader = new Loader(handler);
+        for (String line : lines) {
+            loader.accept(line);
+        }
+        handler.finish();
+        return structures;
+    }
+
+    @Benchmark
+    public Map<String, Collection<Structure>> load() throws IOException {
+        Map<String, Structure> index = new HashMap<>();
+        Map<String, Collection<Structure>> structures = new HashMap<>();
+        Loader loader = new Loader(new LineHandler(index, structures));
+        loader.load(file);
+        return structures;
+    }
+}
@@ -0,0 +1,46 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.GedcomGenerator;
+import org.gautelis.gedcom2latex.LineHandler;
+import org.gautelis.gedcom2latex.Loader;
+import org.gautelis.gedcom2latex.model.Individual;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.gedcom.FAM;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+
+import java.util.*;
+
+/**
+ * Synthetic GEDCOM, loaded and linked the way Application does it before producing output.
+ */
+final class Model {
+    final Map</* id */ String, Structure> index = new HashMap<>();
+    final Map</* tag */ String, Collection<Structure>> structures = new HashMap<>();
+    final Map</* id */ String, Individual> individuals = new LinkedHashMap<>();
+    final Individual root;
+
+    Model(int size) {
+        LineHandler handler = new LineHandler(index, structures);
+        new Loader(handler).load(Synthetic.lines(size).stream());
+
+        for (INDI indi : Structure.getINDIs(structures)) {
+            individuals.put(indi.getId(), new Individual(indi));
+        }
+        for (FAM family : Structure.getFAMs(structures)) {
+            Individual father = family.getHusbandId().map(individuals::get).orElse(null);
+            Individual mother = family.getWifeId().map(individuals::get).orElse(null);
+            for (String childId : family.getChildrenId()) {
+                Individual child = individuals.get(childId);
+                if (null != child) {
+                    if (null != father) {
+                        child.setFather(family.getId(), father);
+                    }
+                    if (null != mother) {
+                        child.setMother(family.getId(), mother);
+                    }
+                }
+            }
+        }
+        root = individuals.get(GedcomGenerator.DEFAULT_ROOT);
+    }
+}
@@ -0,0 +1,65 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.Application;
+import org.gautelis.gedcom2latex.model.Individual;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.gedcom.FAM;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Navigating loaded structures, i.e. wrapping records, rendering source texts and traversing ancestors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int individuals;
+
+    private Model model;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = new Model(individuals);
+    }
+
+    @Benchmark
+    public void getINDIs(Blackhole blackhole) {
+        for (INDI indi : Structure.getINDIs(model.structures)) {
+            blackhole.consume(indi.getId());
+        }
+    }
+
+    @Benchmark
+    public void getFAMs(Blackhole blackhole) {
+        for (FAM fam : Structure.getFAMs(model.structures)) {
+            blackhole.consume(fam.getChildrenRef());
+        }
+    }
+
+    @Benchmark
+    public void getSourceLatex(Blackhole blackhole) {
+        for (Individual individual : model.individuals.values()) {
+            blackhole.consume(individual.getSourceLatex());
+        }
+    }
+
+    @Benchmark
+    public Set<Individual> breadthFirstTraversal() {
+        return Application.breadthFirstTraversal(model.root);
+    }
+
+    @Benchmark
+    public Set<Individual> depthFirstTraversal() {
+        return Application.depthFirstTraversal(model.root);
+    }
+}
@@ -0,0 +1,50 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.Application;
+import org.gautelis.gedcom2latex.model.Individual;
+import org.openjdk.jmh.annotations.*;
+import org.stringtemplate.v4.STGroup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering individuals using templates, as when producing output (though not writing it to file).
+ * Templates are loaded from 'templates', relative to where benchmarks are run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int individuals;
+
+    @Param({ "contrib/swedish.stg" })
+    public String templates;
+
+    private Model model;
+    private STGroup group;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        model = new Model(individuals);
+
+        group = new STGroup();
+        String resource = "file:" + Path.of(templates).toAbsolutePath();
+        group.loadGroupFile(/* absolute path is "relative" to root :) */ "/", resource);
+    }
+
+    @Benchmark
+    public int produceIndividuals() throws IOException {
+        StringBuilder s = new StringBuilder();
+        for (Individual individual : model.individuals.values()) {
+            Application.produceIndividual(individual, group, s);
+        }
+        return s.length();
+    }
+}
@@ -0,0 +1,39 @@
+package org.gautelis.gedcom2latex.benchmarks;
+
+import org.gautelis.gedcom2latex.GedcomGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Synthetic GEDCOM used by benchmarks (see {@link GedcomGenerator}), i.e. one pedigree of all
+ * individuals, rooted at {@link GedcomGenerator#DEFAULT_ROOT}. The same number of individuals
+ * always yields the same file.
+ */
+final class Synthetic {
+    private Synthetic() {}
+
+    static List<String> lines(int individuals) {
+        GedcomGenerator generator = new GedcomGenerator(individuals);
+        generator.setGenerations(Math.min(30, 64 - Long.numberOfLeadingZeros(individuals)));
+        StringWriter writer = new StringWriter();
+        try {
+            generator.generate(writer);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return writer.toString().lines().toList();
+    }
+
+    static Path file(int individuals) throws IOException {
+        Path file = Files.createTempFile("synthetic-" + individuals + "-", ".ged");
+        file.toFile().deleteOnExit();
+        Files.write(file, lines(individuals), StandardCharsets.UTF_8);
+        return file;
+    }
+}
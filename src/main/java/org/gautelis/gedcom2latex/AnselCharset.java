@@ -0,0 +1,216 @@
+package org.gautelis.gedcom2latex;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.text.Normalizer;
+
+/**
+ * The ANSEL character set (ANSI Z39.47), as used by GEDCOM 5.5.1, with the GEDCOM extensions.
+ * <p/>
+ * ANSEL is a single byte character set, where bytes 0x00-0x7F are ASCII. Diacritics are
+ * combining characters (0xE0-0xFE) that precede the character they modify, whereas in Unicode
+ * they follow it. The decoder therefore holds back diacritics until the modified character
+ * is seen, and composes them into a single character where possible (Unicode NFC), e.g.
+ * 0xE8 0x6F (diaeresis, 'o') becomes U+00F6 (o with diaeresis).
+ * <p/>
+ * Only decoding is supported.
+ */
+public final class AnselCharset extends Charset {
+
+    public static final AnselCharset INSTANCE = new AnselCharset();
+
+    // Max number of diacritics applied to one character
+    private static final int MAX_DIACRITICS = 8;
+
+    private static final char UNMAPPED = '\uFFFD';
+
+    // Characters for bytes 0x00-0xFF, where diacritics are found in DIACRITICS
+    private static final char[] CHARACTERS = new char[256];
+
+    // Combining diacritics, for bytes 0xE0-0xFF (or 0 if not a diacritic)
+    private static final char[] DIACRITICS = new char[32];
+
+    static {
+        for (int b = 0; b < 0x80; b++) {
+            CHARACTERS[b] = (char) b;
+        }
+        for (int b = 0x80; b < 0x100; b++) {
+            CHARACTERS[b] = UNMAPPED;
+        }
+
+        // Spacing characters
+        map(0xA1, '\u0141'); // Ł
+        map(0xA2, '\u00D8'); // Ø
+        map(0xA3, '\u0110'); // Đ
+        map(0xA4, '\u00DE'); // Þ
+        map(0xA5, '\u00C6'); // Æ
+        map(0xA6, '\u0152'); // Œ
+        map(0xA7, '\u02B9'); // ʹ
+        map(0xA8, '\u00B7'); // ·
+        map(0xA9, '\u266D'); // ♭
+        map(0xAA, '\u00AE'); // ®
+        map(0xAB, '\u00B1'); // ±
+        map(0xAC, '\u01A0'); // Ơ
+        map(0xAD, '\u01AF'); // Ư
+        map(0xAE, '\u02BC'); // ʼ
+        map(0xB0, '\u02BB'); // ʻ
+        map(0xB1, '\u0142'); // ł
+        map(0xB2, '\u00F8'); // ø
+        map(0xB3, '\u0111'); // đ
+        map(0xB4, '\u00FE'); // þ
+        map(0xB5, '\u00E6'); // æ
+        map(0xB6, '\u0153'); // œ
+        map(0xB7, '\u02BA'); // ʺ
+        map(0xB8, '\u0131'); // ı
+        map(0xB9, '\u00A3'); // £
+        map(0xBA, '\u00F0'); // ð
+        map(0xBC, '\u01A1'); // ơ
+        map(0xBD, '\u01B0'); // ư
+        map(0xBE, '\u25A1'); // □ (GEDCOM)
+        map(0xBF, '\u25A0'); // ■ (GEDCOM)
+        map(0xC0, '\u00B0'); // °
+        map(0xC1, '\u2113'); // ℓ
+        map(0xC2, '\u2117'); // ℗
+        map(0xC3, '\u00A9'); // ©
+        map(0xC4, '\u266F'); // ♯
+        map(0xC5, '\u00BF'); // ¿
+        map(0xC6, '\u00A1'); // ¡
+        map(0xC7, '\u00DF'); // ß
+        map(0xC8, '\u20AC'); // €
+        map(0xCF, '\u00DF'); // ß (GEDCOM)
+
+        // Combining diacritics
+        diacritic(0xE0, '\u0309'); // hook above
+        diacritic(0xE1, '\u0300'); // grave
+        diacritic(0xE2, '\u0301'); // acute
+        diacritic(0xE3, '\u0302'); // circumflex
+        diacritic(0xE4, '\u0303'); // tilde
+        diacritic(0xE5, '\u0304'); // macron
+        diacritic(0xE6, '\u0306'); // breve
+        diacritic(0xE7, '\u0307'); // dot above
+        diacritic(0xE8, '\u0308'); // diaeresis
+        diacritic(0xE9, '\u030C'); // caron
+        diacritic(0xEA, '\u030A'); // ring above
+        diacritic(0xEB, '\uFE20'); // ligature, left half
+        diacritic(0xEC, '\uFE21'); // ligature, right half
+        diacritic(0xED, '\u0315'); // comma above right
+        diacritic(0xEE, '\u030B'); // double acute
+        diacritic(0xEF, '\u0310'); // candrabindu
+        diacritic(0xF0, '\u0327'); // cedilla
+        diacritic(0xF1, '\u0328'); // ogonek
+        diacritic(0xF2, '\u0323'); // dot below
+        diacritic(0xF3, '\u0324'); // diaeresis below
+        diacritic(0xF4, '\u0325'); // ring below
+        diacritic(0xF5, '\u0333'); // double low line
+        diacritic(0xF6, '\u0332'); // low line
+        diacritic(0xF7, '\u0326'); // comma below
+        diacritic(0xF8, '\u031C'); // left half ring below
+        diacritic(0xF9, '\u032E'); // breve below
+        diacritic(0xFA, '\uFE22'); // double tilde, left half
+        diacritic(0xFB, '\uFE23'); // double tilde, right half
+        diacritic(0xFE, '\u0313'); // comma above
+    }
+
+    private static void map(int b, char c) {
+        CHARACTERS[b] = c;
+    }
+
+    private static void diacritic(int b, char c) {
+        DIACRITICS[b - 0xE0] = c;
+    }
+
+    private AnselCharset() {
+        super("ANSEL", new String[] { "x-ANSEL", "ANSI-Z39.47" });
+    }
+
+    @Override
+    public boolean contains(Charset cs) {
+        return cs instanceof AnselCharset || "US-ASCII".equals(cs.name());
+    }
+
+    @Override
+    public CharsetDecoder newDecoder() {
+        return new Decoder(this);
+    }
+
+    @Override
+    public CharsetEncoder newEncoder() {
+        throw new UnsupportedOperationException("Encoding to ANSEL is not supported");
+    }
+
+    @Override
+    public boolean canEncode() {
+        return false;
+    }
+
+    private static final class Decoder extends CharsetDecoder {
+        // Diacritics waiting for the character they apply to
+        private final char[] pending = new char[MAX_DIACRITICS];
+        private int pendingCount = 0;
+
+        private Decoder(Charset cs) {
+            super(cs, 1.0f, 1.0f + MAX_DIACRITICS);
+        }
+
+        @Override
+        protected CoderResult decodeLoop(ByteBuffer in, CharBuffer out) {
+            while (in.hasRemaining()) {
+                int b = in.get(in.position()) & 0xff;
+
+                char diacritic = b >= 0xE0 ? DIACRITICS[b - 0xE0] : 0;
+                if (diacritic != 0) {
+                    if (pendingCount < MAX_DIACRITICS) {
+                        pending[pendingCount++] = diacritic;
+                    }
+                    in.position(in.position() + 1);
+                    continue;
+                }
+
+                char c = CHARACTERS[b];
+                if (pendingCount == 0) {
+                    if (!out.hasRemaining()) {
+                        return CoderResult.OVERFLOW;
+                    }
+                    out.put(c);
+
+                } else if (c < 0x20) {
+                    // Diacritics at end of line do not apply to the line terminator
+                    if (out.remaining() < pendingCount + 1) {
+                        return CoderResult.OVERFLOW;
+                    }
+                    out.put(pending, 0, pendingCount).put(c);
+                    pendingCount = 0;
+
+                } else {
+                    String composed = Normalizer.normalize(c + new String(pending, 0, pendingCount), Normalizer.Form.NFC);
+                    if (out.remaining() < composed.length()) {
+                        return CoderResult.OVERFLOW;
+                    }
+                    out.put(composed);
+                    pendingCount = 0;
+                }
+                in.position(in.position() + 1);
+            }
+            return CoderResult.UNDERFLOW;
+        }
+
+        @Override
+        protected CoderResult implFlush(CharBuffer out) {
+            if (out.remaining() < pendingCount) {
+                return CoderResult.OVERFLOW;
+            }
+            out.put(pending, 0, pendingCount);
+            pendingCount = 0;
+            return CoderResult.UNDERFLOW;
+        }
+
+        @Override
+        protected void implReset() {
+            pendingCount = 0;
+        }
+    }
+}
@@ -10,9 +10,17 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
 import org.gautelis.gedcom2latex.model.DatePlace;
+import org.gautelis.gedcom2latex.model.EventIndex;
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
 import org.gautelis.gedcom2latex.model.Individual;
 import org.gautelis.gedcom2latex.model.Name;
+import org.gautelis.gedcom2latex.model.OffHeapStructureStore;
+import org.gautelis.gedcom2latex.model.Snapshot;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.ValuePool;
+import org.gautelis.gedcom2latex.model.XrefIndex;
+import org.gautelis.gedcom2latex.model.XrefTable;
 import org.gautelis.gedcom2latex.model.gedcom.*;
 import org.stringtemplate.v4.ST;
 import org.stringtemplate.v4.STGroup;
@@ -26,25 +34,91 @@ import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public class Application {
     private final static Logger log = LogManager.getLogger(Application.class);
 
+    /**
+     * How a GEDCOM file is loaded
+     */
+    private enum LoadMode {
+        SEQUENTIAL, // see Loader
+        PARALLEL, // see ParallelLoader
+        PIPELINED, // see PipelinedLoader
+        LAZY // see LazyLoader
+    }
 
     private static boolean loadFile(
-            final Path gedcomFile, Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures
+            final Path gedcomFile, Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            final XrefTable xrefs, final LoadMode mode, final Function<XrefTable, WritableStructureStore> stores,
+            final boolean cache, final Projection projection, final LazyLoader lazyLoader
     ) {
-        LineHandler handler = new LineHandler(index, structures);
+        if (cache) {
+            try {
+                if (Snapshot.load(gedcomFile, projection.toString(), xrefs, index, structures)) {
+                    log.info("Loaded snapshot of GEDCOM file: {}", Snapshot.pathOf(gedcomFile));
+                    return true;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not load snapshot of GEDCOM file (will parse it instead): {}", e.getMessage());
+            }
+        }
+
         try {
-            Loader loader = new Loader(handler);
-            loader.load(gedcomFile.toFile());
-            return true;
+            switch (mode) {
+                case PARALLEL -> {
+                    ParallelLoader loader = new ParallelLoader(index, structures, ForkJoinPool.commonPool(), xrefs, stores, projection);
+                    loader.load(gedcomFile.toFile());
+                }
+                case PIPELINED -> {
+                    LineHandler handler = new LineHandler(index, structures, null, xrefs, stores, projection);
+                    PipelinedLoader loader = new PipelinedLoader(handler);
+                    loader.load(gedcomFile.toFile());
+                }
+                case LAZY -> {
+                    // Records are parsed whole (when used), so projection does not apply.
+                    // The index of records (rather than a snapshot) is kept when caching.
+                    lazyLoader.load(gedcomFile.toFile(), cache);
+                }
+                default -> {
+                    LineHandler handler = new LineHandler(index, structures, null, xrefs, stores, projection);
+                    Loader loader = new Loader(handler);
+                    loader.load(gedcomFile.toFile());
+                }
+            }
         }
         catch (IOException | RuntimeException e) {
             e.printStackTrace(System.err);
+            return false;
         }
-        return false;
+
+        // A snapshot would have us parse all records, which is what lazy loading avoids
+        if (cache && mode != LoadMode.LAZY) {
+            try {
+                Snapshot.write(gedcomFile, projection.toString(), xrefs, structures);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not write snapshot of GEDCOM file: {}", e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private static boolean loadFiles(
+            final List<Path> gedcomFiles, final Path aliasFile,
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            final XrefTable xrefs, final Function<XrefTable, WritableStructureStore> stores, final Projection projection
+    ) {
+        try {
+            MergingLoader loader = new MergingLoader(index, structures, ForkJoinPool.commonPool(), xrefs, stores, projection);
+            loader.load(gedcomFiles.stream().map(Path::toFile).toList(), aliasFile);
+        }
+        catch (IOException | RuntimeException e) {
+            e.printStackTrace(System.err);
+            return false;
+        }
+        return true;
     }
 
     public static Set<Individual> depthFirstTraversal(Individual root) {
@@ -100,11 +174,19 @@ public class Application {
     private static Map</* id */ String, Individual> analyze(
             final Map</* id */ String, Structure> index,
             final Map</* tag */ String, Collection<Structure>> structures,
+            final XrefTable xrefs,
+            final GedzipArchive archive, // or null, if not loaded from a GEDZIP archive
             final PrintStream out
     ) {
-        Map</* id */ String, Individual> individuals = Structure.getINDIs(structures)
-                .stream()
-                .collect(Collectors.toMap(INDI::getId, Individual::new, (a, b) -> b));
+        Map</* id */ String, Individual> individuals = new HashMap<>();
+        XrefIndex<Individual> individualsByRef = new XrefIndex<>(xrefs.size());
+        for (INDI indi : Structure.getINDIs(structures)) {
+            Individual individual = new Individual(indi);
+            individuals.merge(indi.getId(), individual, (a, b) -> b);
+            if (indi.getRef() != XrefTable.NONE) {
+                individualsByRef.put(indi.getRef(), individual);
+            }
+        }
 
         /*
         out.println("--- HEADER ---");
@@ -116,37 +198,38 @@ public class Application {
          */
 
         //out.println("--- FAMILIES ---");
+        long links = 0L;
         for (FAM family : Structure.getFAMs(structures)) {
             //out.println(family);
             String familyId = family.getId();
 
             Individual father = null;
-            Optional<String> husbandId = family.getHusbandId();
-            if (husbandId.isPresent()) {
-                father = individuals.get(husbandId.get());
+            if (family.getHusbandRef() != XrefTable.NONE) {
+                father = individualsByRef.get(family.getHusbandRef());
                 assert null != father;
             }
 
             Individual mother = null;
-            Optional<String> wifeId = family.getWifeId();
-            if (wifeId.isPresent()) {
-                mother = individuals.get(wifeId.get());
+            if (family.getWifeRef() != XrefTable.NONE) {
+                mother = individualsByRef.get(family.getWifeRef());
                 assert null != mother;
             }
 
-            for (String childId : family.getChildrenId()) {
-                //out.println("Looking up child with id=" + childId);
-                Individual child = individuals.get(childId);
+            for (int childRef : family.getChildrenRef()) {
+                Individual child = individualsByRef.get(childRef);
                 if (null != child) {
                     if (null != father) {
                         child.setFather(familyId, father);
+                        links++;
                     }
                     if (null != mother) {
                         child.setMother(familyId, mother);
+                        links++;
                     }
                 }
             }
         }
+        Statistics.SHARED.linked(individuals.size(), links);
 
 
         /*
@@ -186,13 +269,11 @@ public class Application {
 
             Collection<URI> uris = individual.getURIs();
             if (!uris.isEmpty()) {
-                File directory = new File("./download");
-                if (!directory.exists()) {
-                    if (!directory.mkdir()) {
-                        log.warn("Failed to create download directory");
-                        return individuals;
-                    };
+                Optional<File> _directory = downloadDirectory();
+                if (_directory.isEmpty()) {
+                    return individuals;
                 }
+                File directory = _directory.get();
                 for (URI uri : uris) {
                     String path = uri.getPath();
                     out.println(path);
@@ -201,7 +282,10 @@ public class Application {
                         File file = new File(directory, filename);
                         if (!file.exists()) {
                             try {
-                                FileIO.download(uri, file);
+                                long start = System.nanoTime();
+                                if (FileIO.download(uri, file)) {
+                                    Statistics.SHARED.downloaded(file.length(), System.nanoTime() - start);
+                                }
                             } catch (IOException ioe) {
                                 log.info("Failed to download from URI {}: {}", uri, ioe.getMessage());
                             }
@@ -210,6 +294,28 @@ public class Application {
                 }
                 out.println();
             }
+
+            // Media files in a GEDZIP archive are extracted as they are needed
+            // (or not, if there is nowhere to extract them, in which case analysis still continues)
+            Collection<String> references = null != archive ? individual.getMediaReferences() : List.of();
+            Optional<File> _directory = references.isEmpty() ? Optional.empty() : downloadDirectory();
+            if (_directory.isPresent()) {
+                File directory = _directory.get();
+                boolean isExtracted = false;
+                for (String reference : references) {
+                    try {
+                        if (archive.extractMedia(reference, directory).isPresent()) {
+                            out.println(reference);
+                            isExtracted = true;
+                        }
+                    } catch (IOException ioe) {
+                        log.info("Failed to extract {} from archive: {}", reference, ioe.getMessage());
+                    }
+                }
+                if (isExtracted) {
+                    out.println();
+                }
+            }
         }
         out.println("-------------------");
 
@@ -217,14 +323,20 @@ public class Application {
         return individuals;
    }
 
-    private static void produceOutput(
-            final Map</* id */ String, Structure> index,
-            final Map</* tag */ String, Collection<Structure>> structures,
-            final Map</* id */ String, Individual> individuals,
-            final Collection<Path> templates,
-            final Path directory,
-            final PrintStream out
-    ) {
+    /**
+     * Directory into which media are downloaded (or extracted), which is created if it does not exist
+     * @return directory, or empty if it could not be created
+     */
+    private static Optional<File> downloadDirectory() {
+        File directory = new File("./download");
+        if (!directory.exists() && !directory.mkdir()) {
+            log.warn("Failed to create download directory");
+            return Optional.empty();
+        }
+        return Optional.of(directory);
+    }
+
+    private static STGroup loadTemplates(final Collection<Path> templates) {
         STGroup group =  new STGroup();
         //group.verbose = true;
 
@@ -232,7 +344,44 @@ public class Application {
             String resource = "file:" + template.toAbsolutePath().toString();
             group.loadGroupFile(/* absolute path is "relative" to root :) */ "/", resource);
         }
+        return group;
+    }
 
+    /**
+     * Keeps only what is used when producing output, i.e. what analyze() and the
+     * Individual accessors use, the events for which there are templates and, if events
+     * are listed, what the event index uses.
+     */
+    private static Projection defaultProjection(final STGroup group, final boolean isIndexed) {
+        Collection<String> paths = new ArrayList<>(List.of(
+                "HEAD", "TRLR",
+                "FAM.HUSB", "FAM.WIFE", "FAM.CHIL"
+        ));
+        paths.addAll(Individual.TAG_PATHS);
+        if (isIndexed) {
+            paths.addAll(EventIndex.TAG_PATHS);
+        }
+
+        Map</* template */ String, /* tag */ String> events = Map.of(
+                "born", "BIRT", "baptism", "CHR", "death", "DEAT", "burial", "BURI"
+        );
+        events.forEach((template, tag) -> {
+            if (group.isDefined(template)) {
+                paths.add("INDI." + tag + ".DATE");
+                paths.add("INDI." + tag + ".PLAC");
+            }
+        });
+        return Projection.allow(paths);
+    }
+
+    private static void produceOutput(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final Map</* id */ String, Individual> individuals,
+            final STGroup group,
+            final Path directory,
+            final PrintStream out
+    ) {
         Path latexFile = directory.resolve("output.tex");
         try (FileWriterWithEncoding s = FileWriterWithEncoding.builder()
                 .setPath(latexFile)
@@ -245,14 +394,14 @@ public class Application {
                 ST template = group.getInstanceOf("preamble");
                 LocalDate date = LocalDate.now();
                 template.add("date", date.format(DateTimeFormatter.ISO_LOCAL_DATE));
-                s.append(template.render());
+                render(template, s);
             }
 
             // chapter(title)
             {
                 ST template = group.getInstanceOf("chapter");
                 template.add("title", "Individer");
-                s.append(template.render());
+                render(template, s);
             }
 
             {
@@ -261,77 +410,12 @@ public class Application {
                 {
                     ST template = group.getInstanceOf("genealogygraph_horizontal");
                     template.add("graph", Individual.produceLatexOutput());
-                    s.append(template.render());
+                    render(template, s);
                 }
                 */
 
                 for (Individual individual : individuals.values()) {
-                    Collection<Name> names = individual.getNames();
-                    Iterator<Name> niter = names.iterator();
-
-                    // individual(id,name)
-                    {
-                        ST template = group.getInstanceOf("individual");
-                        template.add("id", individual.getId());
-                        if (niter.hasNext()) {
-                            Name name = niter.next();
-                            template.add("name", name.annotatedName().replace("/", "").replace("\"", "'"));
-                        } else {
-                            template.add("name", individual.getId());
-                        }
-                        template.add("sex", individual.getSex().name());
-                        s.append(template.render());
-                    }
-
-                    // genealogygraph_horiz(graph)
-                    {
-                        ST template = group.getInstanceOf("genealogygraph_horizontal");
-                        template.add("graph", individual.asCoreRelationship());
-                        s.append(template.render());
-                    }
-
-                    while (niter.hasNext()) {
-                        Name name = niter.next();
-
-                        // additionalName(name)
-                        ST template = group.getInstanceOf("additionalName");
-                        template.add("name", name);
-                        s.append(template.render());
-                    }
-
-                    // born(date, place)
-                    for (DatePlace birth : individual.getBirths()) {
-                        ST template = group.getInstanceOf("born");
-                        template.add("date", birth.date().toLowerCase());
-                        template.add("place", birth.place());
-                        s.append(template.render());
-                    }
-
-                    // baptism(date, place)
-                    for (DatePlace baptism : individual.getBaptisms()) {
-                        ST template = group.getInstanceOf("baptism");
-                        template.add("date", baptism.date().toLowerCase());
-                        template.add("place", baptism.place());
-                        s.append(template.render());
-                    }
-
-                    // death(date, place)
-                    for (DatePlace death : individual.getDeaths()) {
-                        ST template = group.getInstanceOf("death");
-                        template.add("date", death.date().toLowerCase());
-                        template.add("place", death.place());
-                        s.append(template.render());
-                    }
-
-                    // burial(date, place)
-                    for (DatePlace burial : individual.getBurials()) {
-                        ST template = group.getInstanceOf("burial");
-                        template.add("date", burial.date().toLowerCase());
-                        template.add("place", burial.place());
-                        s.append(template.render());
-                    }
-
-                    s.append(individual.getSourceLatex());
+                    produceIndividual(individual, group, s);
                 }
             }
 
@@ -339,65 +423,256 @@ public class Application {
             {
                 ST preamble = group.getInstanceOf("chapter");
                 preamble.add("title", "Familier");
-                s.append(preamble.render());
+                render(preamble, s);
             }
 
             // postamble(date)
             {
                 ST postamble = group.getInstanceOf("postamble");
-                s.append(postamble.render());
+                render(postamble, s);
             }
         } catch (IOException ioe) {
             String info = "Failed to produce output: " + ioe.getMessage();
             log.error(info, ioe);
             out.println(info);
             out.flush();
+            return;
+        }
+        Statistics.SHARED.written(latexFile.toFile().length());
+    }
+
+    /**
+     * Renders an individual, i.e. names, relationships, events and sources.
+     */
+    public static void produceIndividual(
+            final Individual individual,
+            final STGroup group,
+            final Appendable s
+    ) throws IOException {
+        Collection<Name> names = individual.getNames();
+        Iterator<Name> niter = names.iterator();
+
+        // individual(id,name)
+        {
+            ST template = group.getInstanceOf("individual");
+            template.add("id", individual.getId());
+            if (niter.hasNext()) {
+                Name name = niter.next();
+                template.add("name", name.annotatedName().replace("/", "").replace("\"", "'"));
+            } else {
+                template.add("name", individual.getId());
+            }
+            template.add("sex", individual.getSex().name());
+            render(template, s);
+        }
+
+        // genealogygraph_horiz(graph)
+        {
+            ST template = group.getInstanceOf("genealogygraph_horizontal");
+            template.add("graph", individual.asCoreRelationship());
+            render(template, s);
+        }
+
+        while (niter.hasNext()) {
+            Name name = niter.next();
+
+            // additionalName(name)
+            ST template = group.getInstanceOf("additionalName");
+            template.add("name", name);
+            render(template, s);
         }
+
+        // born(date, place)
+        for (DatePlace birth : individual.getBirths()) {
+            ST template = group.getInstanceOf("born");
+            template.add("date", birth.date().toLowerCase());
+            template.add("place", birth.place());
+            render(template, s);
+        }
+
+        // baptism(date, place)
+        for (DatePlace baptism : individual.getBaptisms()) {
+            ST template = group.getInstanceOf("baptism");
+            template.add("date", baptism.date().toLowerCase());
+            template.add("place", baptism.place());
+            render(template, s);
+        }
+
+        // death(date, place)
+        for (DatePlace death : individual.getDeaths()) {
+            ST template = group.getInstanceOf("death");
+            template.add("date", death.date().toLowerCase());
+            template.add("place", death.place());
+            render(template, s);
+        }
+
+        // burial(date, place)
+        for (DatePlace burial : individual.getBurials()) {
+            ST template = group.getInstanceOf("burial");
+            template.add("date", burial.date().toLowerCase());
+            template.add("place", burial.place());
+            render(template, s);
+        }
+
+        s.append(individual.getSourceLatex());
+    }
+
+    private static void render(final ST template, final Appendable s) throws IOException {
+        s.append(template.render());
+        Statistics.SHARED.rendered();
     }
 
 
 
+    /**
+     * Lists events in years [fromYear, toYear], in chronological order, e.g.
+     * <pre>
+     * 3 MAR 1801 BIRT @I12@ Alstahaug, Nordland, Norge
+     * 24 JUN 1801 MARR @I7@ @I9@ Alstahaug, Nordland, Norge
+     * </pre>
+     */
+    private static void listEvents(final EventIndex events, final int fromYear, final int toYear, final PrintStream out) {
+        out.println("-------------------");
+        for (EventIndex.Entry entry : events.between(fromYear, toYear)) {
+            out.print(entry.event().getDate().orElse(""));
+            out.print(" " + entry.tag().name());
+            if (null != entry.individual()) {
+                out.print(" " + entry.individual().getId());
+            }
+            if (null != entry.spouse()) {
+                out.print(" " + entry.spouse().getId());
+            }
+            entry.event().getPlace().filter(place -> !place.isEmpty()).ifPresent(place -> out.print(" " + place));
+            out.println();
+        }
+        out.println("-------------------");
+    }
+
     private static void process(
-            final Path gedcomFile,
+            final List<Path> gedcomFiles,
+            final Path aliasFile, // or null
             final Collection<Path> templates,
             final Path directory,
+            final LoadMode mode,
+            final Function<XrefTable, WritableStructureStore> stores,
+            final boolean cache,
+            final Projection projection, // or null, if derived from templates
+            final int[] eventYears, // [from, to] or null, if events are not listed
+            final boolean stats,
             final PrintStream out
     ) {
         final Map</* id */ String, Structure> index = new HashMap<>();
         final Map</* tag */ String, Collection<Structure>> structures = new HashMap<>();
+        final XrefTable xrefs = new XrefTable();
+
+        final Path gedcomFile = gedcomFiles.get(0);
+        final boolean isMerged = gedcomFiles.size() > 1;
+
+        LoadMode _mode = mode;
+        if (mode == LoadMode.LAZY && GedcomFiles.isCompressed(gedcomFile)) {
+            log.info("Compressed GEDCOM file can not be loaded lazily (will load it sequentially)");
+            _mode = LoadMode.SEQUENTIAL;
+        }
+        if (isMerged && (mode != LoadMode.SEQUENTIAL || cache)) {
+            log.info("Several GEDCOM files are loaded concurrently, one thread per file, and are not cached");
+        }
 
-        if (loadFile(gedcomFile, index, structures)) {
-            Optional<HEAD> head = Structure.getHEAD(structures);
-            if (head.isPresent()) {
-                Optional<GEDC> gedc = head.get().GEDC();
-                if (gedc.isPresent()) {
-                    String version = gedc.get().getVersionNumber();
-                    out.println("Loaded GEDCOM file, version: " + version);
-
-                    switch (version) {
-                        case "5.5.1" -> {
-                            out.println("Processing...");
+        final STGroup group = loadTemplates(templates);
+        final Projection _projection = null != projection ? projection : defaultProjection(group, null != eventYears);
+
+        // Records are loaded on demand when loading lazily, so the file is kept open until output is produced.
+        // Each record is parsed into a store of its own, which is kept on the heap.
+        try (LazyLoader lazyLoader = _mode == LoadMode.LAZY && !isMerged
+                ? new LazyLoader(index, structures, xrefs, HeapStructureStore::forRecord, LazyLoader.DEFAULT_CACHE_SIZE)
+                : null) {
+            boolean isLoaded;
+            Statistics.Phase loadPhase = Statistics.SHARED.phase(Statistics.LOAD);
+            try {
+                isLoaded = isMerged
+                        ? loadFiles(gedcomFiles, aliasFile, index, structures, xrefs, stores, _projection)
+                        : loadFile(gedcomFile, index, structures, xrefs, _mode, stores, cache, _projection, lazyLoader);
+            } finally {
+                loadPhase.close();
+            }
+
+            if (isLoaded) {
+                Optional<HEAD> head = Structure.getHEAD(structures);
+                if (head.isPresent()) {
+                    Optional<GEDC> gedc = head.get().GEDC();
+                    if (gedc.isPresent()) {
+                        String version = gedc.get().getVersionNumber();
+                        out.println("Loaded GEDCOM file, version: " + version);
+
+                        switch (version) {
+                            case "5.5.1" -> {
+                                out.println("Processing...");
+                            }
+                            default -> {
+                                out.println("Cannot process GEDCOM version " + version);
+                                out.flush();
+                                System.exit(1);
+                            }
                         }
-                        default -> {
-                            out.println("Cannot process GEDCOM version " + version);
-                            out.flush();
-                            System.exit(1);
+                    }
+                }
+
+                //
+                if (log.isTraceEnabled()) {
+                    StringBuffer buf = new StringBuffer();
+                    for (Structure structure : index.values()) {
+                        structure.deepToString(buf);
+                    }
+                    log.trace(buf);
+                }
+
+                Map</* id */ String, Individual> individuals;
+                Statistics.Phase analyzePhase = Statistics.SHARED.phase(Statistics.ANALYZE);
+                try {
+                    if (!isMerged && GedcomFiles.isGedzip(gedcomFile)) {
+                        try (GedzipArchive archive = new GedzipArchive(gedcomFile)) {
+                            individuals = analyze(index, structures, xrefs, archive, out);
+                        } catch (IOException ioe) {
+                            log.warn("Could not open GEDZIP archive: {}", ioe.getMessage());
+                            individuals = analyze(index, structures, xrefs, null, out);
                         }
+                    } else {
+                        individuals = analyze(index, structures, xrefs, null, out);
                     }
+                } finally {
+                    analyzePhase.close();
                 }
-            }
+                if (null != eventYears) {
+                    EventIndex events;
+                    Statistics.Phase indexPhase = Statistics.SHARED.phase(Statistics.INDEX);
+                    try {
+                        events = EventIndex.build(individuals, Structure.getFAMs(structures), xrefs.getPlaces());
+                        Statistics.SHARED.indexed(events.size());
+                    } finally {
+                        indexPhase.close();
+                    }
+                    log.debug("Indexed {} events", events.size());
 
-            //
-            if (log.isTraceEnabled()) {
-                StringBuffer buf = new StringBuffer();
-                for (Structure structure : index.values()) {
-                    structure.deepToString(buf);
+                    listEvents(events, eventYears[0], eventYears[1], out);
+                }
+
+                Statistics.Phase outputPhase = Statistics.SHARED.phase(Statistics.OUTPUT);
+                try {
+                    produceOutput(index, structures, individuals, group, directory, out);
+                } finally {
+                    outputPhase.close();
                 }
-                log.trace(buf);
-            }
 
-            Map</* id */ String, Individual> individuals = analyze(index, structures, out);
-            produceOutput(index, structures, individuals, templates, directory, out);
+                if (null != lazyLoader) {
+                    Statistics.SHARED.loadedLazily(lazyLoader.getLoads());
+                }
+                log.info("Value pool (when reading data): {}", ValuePool.SHARED);
+                log.info("Place registry: {}", xrefs.getPlaces());
+                if (stats) {
+                    Statistics.SHARED.report(out);
+                }
+            }
+        } catch (IOException ioe) {
+            log.warn("Could not close GEDCOM file: {}", ioe.getMessage());
         }
     }
 
@@ -426,11 +701,79 @@ public class Application {
                 .longOpt("directory")
                 .build());
 
+        options.addOption(Option.builder("p")
+                .required(false)
+                .desc("Load GEDCOM file in parallel (memory mapped)")
+                .longOpt("parallel")
+                .build());
+
+        options.addOption(Option.builder("r")
+                .required(false)
+                .desc("Load GEDCOM file while reading ahead (and decoding) in a separate thread")
+                .longOpt("read-ahead")
+                .build());
+
+        options.addOption(Option.builder("l")
+                .required(false)
+                .desc("Load GEDCOM file lazily, parsing records only when used (not UTF-16)")
+                .longOpt("lazy")
+                .build());
+
+        options.addOption(Option.builder("o")
+                .required(false)
+                .hasArg()
+                .optionalArg(true)
+                .desc("Keep parsed GEDCOM off-heap, optionally mapped from scratch files in given directory")
+                .longOpt("off-heap")
+                .build());
+
+        options.addOption(Option.builder("c")
+                .required(false)
+                .desc("Keep a snapshot of the parsed GEDCOM file next to it, and load from it while the GEDCOM file is unchanged")
+                .longOpt("cache")
+                .build());
+
+        options.addOption(Option.builder("a")
+                .required(false)
+                .hasArg()
+                .desc("File linking records that appear in several of the given GEDCOM files")
+                .longOpt("aliases")
+                .build());
+
+        options.addOption(Option.builder("i")
+                .required(false)
+                .hasArgs()
+                .valueSeparator(',')
+                .desc("Load only given tag paths, e.g. INDI.NAME,INDI.BIRT.DATE (default is what templates use)")
+                .longOpt("include")
+                .build());
+
+        options.addOption(Option.builder("x")
+                .required(false)
+                .hasArgs()
+                .valueSeparator(',')
+                .desc("Load all but given tag paths, e.g. NOTE,INDI.OBJE")
+                .longOpt("exclude")
+                .build());
+
+        options.addOption(Option.builder("e")
+                .required(false)
+                .hasArg()
+                .desc("List dated events in given years, e.g. 1750-1800 or 1801, in chronological order")
+                .longOpt("events")
+                .build());
+
+        options.addOption(Option.builder("s")
+                .required(false)
+                .desc("Print statistics, e.g. time taken by each phase and lines parsed per second")
+                .longOpt("stats")
+                .build());
+
         try {
             CommandLineParser parser = new DefaultParser();
             CommandLine commandLine = parser.parse(options, args);
 
-            Path gedcomFile = null;
+            List<Path> gedcomFiles = new ArrayList<>();
             for (String _gedcomFile : commandLine.getArgs()) {
                 Path path = Path.of(_gedcomFile);
                 File file = path.toFile();
@@ -442,7 +785,21 @@ public class Application {
                     System.err.println("Can't read GEDCOM file: " + _gedcomFile);
                     System.exit(1);
                 }
-                gedcomFile = path;;
+                gedcomFiles.add(path);
+            }
+            if (gedcomFiles.isEmpty()) {
+                System.err.println("No GEDCOM file given");
+                System.exit(1);
+            }
+
+            Path aliasFile = null;
+            String _aliasFile = commandLine.getOptionValue("a");
+            if (null != _aliasFile && !_aliasFile.isEmpty()) {
+                aliasFile = Path.of(_aliasFile);
+                if (!aliasFile.toFile().canRead()) {
+                    System.err.println("Can't read alias file: " + _aliasFile);
+                    System.exit(1);
+                }
             }
 
             //
@@ -489,7 +846,68 @@ public class Application {
             }
 
             //
-            process(gedcomFile, templates, directory.toPath(), System.out);
+            LoadMode mode = LoadMode.SEQUENTIAL;
+            if (commandLine.hasOption("l")) {
+                mode = LoadMode.LAZY;
+            } else if (commandLine.hasOption("p")) {
+                mode = LoadMode.PARALLEL;
+            } else if (commandLine.hasOption("r")) {
+                mode = LoadMode.PIPELINED;
+            }
+
+            //
+            Function<XrefTable, WritableStructureStore> stores = HeapStructureStore::new;
+            if (commandLine.hasOption("o")) {
+                String _scratch = commandLine.getOptionValue("o");
+                if (null == _scratch || _scratch.isEmpty()) {
+                    stores = OffHeapStructureStore::new;
+                } else {
+                    Path scratch = Path.of(_scratch);
+                    if (!scratch.toFile().isDirectory()) {
+                        System.err.println("Scratch directory does not exist: " + _scratch);
+                        System.exit(1);
+                    }
+                    stores = xrefs -> {
+                        try {
+                            return new OffHeapStructureStore(xrefs, scratch);
+                        } catch (IOException ioe) {
+                            throw new UncheckedIOException("Could not create scratch file in " + scratch, ioe);
+                        }
+                    };
+                }
+            }
+
+            //
+            boolean cache = commandLine.hasOption("c");
+
+            //
+            Projection projection = null; // derived from templates
+            if (commandLine.hasOption("i")) {
+                projection = Projection.allow(List.of(commandLine.getOptionValues("i")));
+            } else if (commandLine.hasOption("x")) {
+                projection = Projection.deny(List.of(commandLine.getOptionValues("x")));
+            }
+
+            //
+            int[] eventYears = null; // events are not listed
+            String _eventYears = commandLine.getOptionValue("e");
+            if (null != _eventYears && !_eventYears.isEmpty()) {
+                try {
+                    int dash = _eventYears.indexOf('-', 1); // allowing for a negative (B.C.) first year
+                    eventYears = dash < 0
+                            ? new int[] { Integer.parseInt(_eventYears.trim()), Integer.parseInt(_eventYears.trim()) }
+                            : new int[] { Integer.parseInt(_eventYears.substring(0, dash).trim()), Integer.parseInt(_eventYears.substring(dash + 1).trim()) };
+                } catch (NumberFormatException nfe) {
+                    System.err.println("Years of events should be given as e.g. 1750-1800 or 1801: " + _eventYears);
+                    System.exit(1);
+                }
+            }
+
+            //
+            boolean stats = commandLine.hasOption("s");
+
+            //
+            process(gedcomFiles, aliasFile, templates, directory.toPath(), mode, stores, cache, projection, eventYears, stats, System.out);
         }
         catch (Throwable t) {
             System.err.println(t.getMessage());
@@ -6,6 +6,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.gautelis.gedcom2latex.jfr.DownloadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -124,6 +125,8 @@ public class FileIO {
     private static final String USER_AGENT = "Mozilla/5.0";
 
     public static boolean download(URI uri, File file) throws IOException {
+        DownloadEvent event = new DownloadEvent();
+        event.begin();
         try (CloseableHttpClient client = HttpClients.createDefault()) {
 
             HttpGet getMethod = new HttpGet(uri);
@@ -131,12 +134,14 @@ public class FileIO {
 
             HttpResponse rawResponse = client.execute(getMethod);
             int status = rawResponse.getStatusLine().getStatusCode();
+            event.status = status;
             if (200 == status) {
                 HttpEntity entity = rawResponse.getEntity();
                 Header contentType = entity.getContentType();
                 log.debug("Download {} from {} [{}]", file.getName(), uri, contentType.getValue());
 
                 writeToFile(entity.getContent(), file);
+                event.bytes = file.length();
                 return true;
 
             } else {
@@ -145,6 +150,12 @@ public class FileIO {
             }
 
             return false;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.uri = uri.toString();
+                event.commit();
+            }
         }
     }
 }
@@ -0,0 +1,139 @@
+package org.gautelis.gedcom2latex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Determines the character set of a GEDCOM file.
+ * <p/>
+ * As of version 7.0, a GEDCOM file is defined as UTF-8 encoded plain text, but GEDCOM 5.5.1
+ * files may also be ANSEL or UNICODE (UTF-16) encoded, as stated by the CHAR line of the header:
+ * <pre>
+ * 0 HEAD
+ *   1 CHAR ANSEL
+ * </pre>
+ * A byte order mark (BOM) takes precedence over the CHAR line.
+ */
+public final class GedcomCharsets {
+    private static final Logger log = LoggerFactory.getLogger(GedcomCharsets.class);
+
+    // The header is expected within this many bytes
+    private static final int HEAD_SIZE = 64 * 1024;
+
+    private GedcomCharsets() {}
+
+    public static Charset detect(Path gedcomFile) throws IOException {
+        byte[] bytes = new byte[HEAD_SIZE];
+        int length = 0;
+        try (InputStream is = GedcomFiles.open(gedcomFile)) {
+            int count;
+            while (length < bytes.length && (count = is.read(bytes, length, bytes.length - length)) > 0) {
+                length += count;
+            }
+        }
+        return detect(bytes, length);
+    }
+
+    /**
+     * @param bytes the first bytes of a file
+     * @param length number of valid bytes in 'bytes'
+     */
+    public static Charset detect(byte[] bytes, int length) {
+        // Byte order mark
+        if (length >= 3 && (bytes[0] & 0xff) == 0xef && (bytes[1] & 0xff) == 0xbb && (bytes[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+        if (length >= 2 && (bytes[0] & 0xff) == 0xfe && (bytes[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (length >= 2 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16LE;
+        }
+
+        // UTF-16 without BOM, i.e. "0 HEAD" with every other byte being 0
+        if (length >= 2 && bytes[0] == '0' && bytes[1] == 0) {
+            return StandardCharsets.UTF_16LE;
+        }
+        if (length >= 2 && bytes[0] == 0 && bytes[1] == '0') {
+            return StandardCharsets.UTF_16BE;
+        }
+
+        // Otherwise, look for "1 CHAR ..." in the header (which is ASCII in all supported encodings)
+        int lineStart = 0;
+        boolean isFirstLine = true;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || bytes[i] == '\n' || bytes[i] == '\r') {
+                String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.US_ASCII).trim();
+                if (!isFirstLine && line.startsWith("0")) {
+                    // End of header
+                    break;
+                }
+                if (line.startsWith("1 CHAR ")) {
+                    return forName(line.substring("1 CHAR ".length()).trim());
+                }
+                if (!line.isEmpty()) {
+                    isFirstLine = false;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Maps character set, as given by CHAR in header, to a charset. Unknown character sets
+     * are taken to be UTF-8.
+     */
+    public static Charset forName(String characterSet) {
+        String name = characterSet.trim().toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "UTF-8", "UTF8", "ASCII" -> {
+                // ASCII is a subset of UTF-8
+                return StandardCharsets.UTF_8;
+            }
+            case "ANSEL" -> {
+                return AnselCharset.INSTANCE;
+            }
+            case "UNICODE", "UTF-16" -> {
+                // Without a BOM (see above), big endian is assumed
+                return StandardCharsets.UTF_16;
+            }
+            case "ANSI" -> {
+                return Charset.forName("windows-1252");
+            }
+            case "IBMPC", "IBM WINDOWS" -> {
+                return Charset.forName("IBM850");
+            }
+            default -> {
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                    log.warn("Unknown character set '{}' (assuming UTF-8)", characterSet);
+                    return StandardCharsets.UTF_8;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether line terminators, digits and tags are encoded as single (ASCII) bytes,
+     * so that a file may be split into lines and records without decoding it.
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8)
+                || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1)
+                || charset instanceof AnselCharset
+                || charset.name().startsWith("windows-")
+                || charset.name().startsWith("IBM");
+    }
+}
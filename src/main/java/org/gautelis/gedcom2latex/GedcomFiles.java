@@ -0,0 +1,67 @@
+package org.gautelis.gedcom2latex;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens GEDCOM files, that may be compressed.
+ * <p/>
+ * Besides plain GEDCOM files, gzip compressed files (e.g. "my.ged.gz") and GEDZIP archives
+ * (e.g. "my.gdz", see {@link GedzipArchive}) are accepted. Compressed files are decompressed
+ * while being read, without intermediate (temporary) files. Since compressed files can not be
+ * read at random, they can not be split (see {@link ParallelLoader}) or indexed
+ * (see {@link RecordIndex}).
+ */
+public final class GedcomFiles {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GedcomFiles() {}
+
+    public static boolean isGzip(Path gedcomFile) {
+        return gedcomFile.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+    }
+
+    public static boolean isGedzip(Path gedcomFile) {
+        String name = gedcomFile.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".gdz") || name.endsWith(".zip");
+    }
+
+    public static boolean isCompressed(Path gedcomFile) {
+        return isGzip(gedcomFile) || isGedzip(gedcomFile);
+    }
+
+    /**
+     * Opens GEDCOM file for reading, decompressing it if needed.
+     */
+    public static InputStream open(Path gedcomFile) throws IOException {
+        if (isGzip(gedcomFile)) {
+            return new GZIPInputStream(Files.newInputStream(gedcomFile), BUFFER_SIZE);
+        }
+        if (isGedzip(gedcomFile)) {
+            // Archive is closed together with the stream
+            GedzipArchive archive = new GedzipArchive(gedcomFile);
+            try {
+                return new FilterInputStream(archive.openGedcom()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            archive.close();
+                        }
+                    }
+                };
+            } catch (IOException | RuntimeException e) {
+                archive.close();
+                throw e;
+            }
+        }
+        return Files.newInputStream(gedcomFile);
+    }
+}
@@ -0,0 +1,648 @@
+package org.gautelis.gedcom2latex;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.gautelis.gedcom2latex.model.XrefTable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generates synthetic GEDCOM 5.5.1, e.g. for benchmarks and soak tests, of any size.
+ * <p/>
+ * Individuals form pedigrees of a given number of generations, i.e. trees where the parents of
+ * the k:th individual of a tree are the 2k:th (father) and 2k+1:th (mother) individuals, which
+ * are married in a family. Men pass their surname on to their children. Pedigree collapse is
+ * introduced by letting the mother of a wife be the sister of the father of her husband (i.e.
+ * the couple are cousins), in which case they share ancestors. The first individual is the root
+ * of the first tree, and is given a specific xref.
+ * <p/>
+ * Individuals have names, birth, baptism, death and burial (with dates and places), source
+ * citations with (HTML) text, media (URLs) and notes. Long lines are split using CONC, and
+ * text spanning several lines using CONT.
+ * <p/>
+ * Everything about an individual or a family is determined by its position (and the seed),
+ * so output is streamed, record by record, without keeping anything in memory. Hence files
+ * of any size (tens of GB) may be generated. The same settings always yield the same file.
+ * <pre>
+ * java -cp target/gedcom2latex-1.0-SNAPSHOT.jar org.gautelis.gedcom2latex.GedcomGenerator -n 1000000 big.ged
+ * </pre>
+ */
+public class GedcomGenerator {
+
+    public static final String DEFAULT_ROOT = "@I500003@"; // see Application
+
+    private static final String[] MALE_NAMES = {
+            "Ola", "Per", "Nils", "Hans", "Johan", "Anders", "Erik", "Lars", "Karl", "Olof", "Peder", "Jon"
+    };
+    private static final String[] FEMALE_NAMES = {
+            "Kari", "Anna", "Märta", "Maria", "Karin", "Ingrid", "Kristina", "Elisabet", "Brita", "Sigrid", "Ragnhild", "Åse"
+    };
+    private static final String[] SURNAMES = {
+            "Hansen", "Olsen", "Randers", "Öberg", "Johansson", "Andersson", "Nilsson", "Berg", "Lindqvist", "Dahl",
+            "Lökken", "Strøm", "Haugen", "Eriksson", "Sjöberg", "Bakke"
+    };
+    private static final String[] PLACES = {
+            "Bø, Nordland, Norge", "Hadsel, Nordland, Norge", "Oslo, Norge", "Bergen, Hordaland, Norge",
+            "Stockholm, Sverige", "Göteborg, Västra Götaland, Sverige", "Uppsala, Uppland, Sverige",
+            "Lund, Skåne, Sverige", "Trondheim, Sør-Trøndelag, Norge", "Tromsø, Troms, Norge"
+    };
+    private static final String[] MONTHS = {
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+    };
+    private static final String[] WORDS = {
+            "född", "döpt", "gift", "död", "begraven", "gård", "socken", "prost", "kyrkbok", "husförhör",
+            "bonde", "dräng", "piga", "änka", "fadder", "flyttad", "till", "från", "och", "i", "på", "med"
+    };
+
+    // Max number of chars of data on a line, keeping lines within 255 chars (GEDCOM 5.5.1)
+    public static final int DEFAULT_LINE_LENGTH = 200;
+
+    private final long individuals;
+    private long families = -1L; // as many as there are parents
+    private int generations = 10;
+    private double collapseRate = 0.05;
+    private int noteSize = 200; // chars
+    private int textSize = 400; // chars
+    private int sources = 100;
+    private double mediaRate = 0.1;
+    private String mediaUrl = "https://example.org/media/";
+    private int lineLength = DEFAULT_LINE_LENGTH;
+    private long seed = 1L;
+    private String root = DEFAULT_ROOT;
+
+    // Individuals in a tree, i.e. 2^generations - 1
+    private long treeSize;
+
+    // Number of lines written
+    private long lines = 0L;
+
+    public GedcomGenerator(long individuals) {
+        if (individuals < 1) {
+            throw new IllegalArgumentException("Number of individuals must be positive: " + individuals);
+        }
+        this.individuals = individuals;
+    }
+
+    /**
+     * @param families max number of families (marriages of parents), or -1 if all parents are married
+     */
+    public void setFamilies(long families) {
+        this.families = families;
+    }
+
+    /**
+     * @param generations number of generations in each pedigree, in [1, 30]
+     */
+    public void setGenerations(int generations) {
+        if (generations < 1 || generations > 30) {
+            throw new IllegalArgumentException("Number of generations must be in [1, 30]: " + generations);
+        }
+        this.generations = generations;
+    }
+
+    /**
+     * @param collapseRate fraction of couples that are cousins, in [0, 1]
+     */
+    public void setCollapseRate(double collapseRate) {
+        this.collapseRate = rate(collapseRate, "Collapse rate");
+    }
+
+    /**
+     * @param noteSize approximate size of a note (per individual), in chars, or 0 if no notes
+     */
+    public void setNoteSize(int noteSize) {
+        this.noteSize = Math.max(0, noteSize);
+    }
+
+    /**
+     * @param textSize approximate size of (HTML) source text, in chars, or 0 if no text
+     */
+    public void setTextSize(int textSize) {
+        this.textSize = Math.max(0, textSize);
+    }
+
+    /**
+     * @param sources number of sources cited, or 0 if no citations
+     */
+    public void setSources(int sources) {
+        this.sources = Math.max(0, sources);
+    }
+
+    /**
+     * @param mediaRate fraction of individuals with media (URLs), in [0, 1]
+     */
+    public void setMediaRate(double mediaRate) {
+        this.mediaRate = rate(mediaRate, "Media rate");
+    }
+
+    public void setMediaUrl(String mediaUrl) {
+        this.mediaUrl = mediaUrl;
+    }
+
+    /**
+     * @param lineLength max number of chars of data on a line, beyond which data continues on CONC lines
+     */
+    public void setLineLength(int lineLength) {
+        if (lineLength < 16 || lineLength > 246) {
+            throw new IllegalArgumentException("Line length must be in [16, 246]: " + lineLength);
+        }
+        this.lineLength = lineLength;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param root xref of first individual, e.g. "@I500003@"
+     */
+    public void setRoot(String root) {
+        if (!XrefTable.isPointer(root, 0, root.length())) {
+            throw new IllegalArgumentException("Not an xref: " + root);
+        }
+        this.root = root;
+    }
+
+    private static double rate(double rate, String what) {
+        if (rate < 0.0 || rate > 1.0) {
+            throw new IllegalArgumentException(what + " must be in [0, 1]: " + rate);
+        }
+        return rate;
+    }
+
+    /**
+     * @return number of lines written
+     */
+    public long generate(Writer writer) throws IOException {
+        treeSize = (1L << generations) - 1;
+        lines = 0L;
+
+        line(writer, 0, null, "HEAD", null);
+        line(writer, 1, null, "SOUR", "GEDCOM2LATEX");
+        line(writer, 1, null, "GEDC", null);
+        line(writer, 2, null, "VERS", "5.5.1");
+        line(writer, 2, null, "FORM", "LINEAGE-LINKED");
+        line(writer, 1, null, "CHAR", "UTF-8");
+
+        for (long i = 0; i < individuals; i++) {
+            individual(writer, i);
+        }
+        for (long i = 0; i < individuals; i++) {
+            if (hasParents(i)) {
+                family(writer, i);
+            }
+        }
+        for (int s = 1; s <= sources; s++) {
+            source(writer, s);
+        }
+
+        line(writer, 0, null, "TRLR", null);
+        writer.flush();
+        return lines;
+    }
+
+    /*
+     * Pedigree, where individual i is the k:th (1-based) individual in the t:th tree.
+     * The family in which i is a child is given the same number as i.
+     */
+
+    private long tree(long i) {
+        return i / treeSize;
+    }
+
+    private long position(long i) {
+        return i % treeSize + 1;
+    }
+
+    private long individual(long t, long k) {
+        return t * treeSize + k - 1;
+    }
+
+    private int generation(long i) {
+        return 63 - Long.numberOfLeadingZeros(position(i));
+    }
+
+    /**
+     * Determines whether the parents of i exist (and are married)
+     */
+    private boolean hasParents(long i) {
+        long k = position(i);
+        long mother = individual(tree(i), 2 * k + 1);
+        if (2 * k + 1 > treeSize || mother >= individuals) {
+            return false;
+        }
+        // Families are numbered in the order they appear
+        long ordinal = tree(i) * (treeSize / 2) + k - 1;
+        return families < 0 || ordinal < families;
+    }
+
+    /**
+     * Determines whether a couple (the parents of i) are cousins, in which case the mother of the
+     * wife is the sister of the father of the husband.
+     */
+    private boolean isCollapsed(long i) {
+        long k = position(i);
+        return hasParents(individual(tree(i), 4 * k + 3))
+                && random(i, 1).nextDouble() < collapseRate;
+    }
+
+    /**
+     * The family in which i is a child, or -1 if none
+     */
+    private long childOf(long i) {
+        long k = position(i);
+        if (k % 4 == 3 && k > 3) {
+            long couple = individual(tree(i), (k - 3) / 4);
+            if (isCollapsed(couple)) {
+                // Sister of the father of the husband
+                return individual(tree(i), k - 3);
+            }
+        }
+        return hasParents(i) ? i : -1L;
+    }
+
+    private String xref(char type, long i) {
+        if (type == 'I' && i == 0) {
+            return root;
+        }
+        String xref = "@" + type + (i + 1) + "@";
+        return xref.equals(root) ? "@" + type + "0@" : xref;
+    }
+
+    private SplittableRandom random(long i, int purpose) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + 31 * i + purpose);
+    }
+
+    private void individual(Writer writer, long i) throws IOException {
+        SplittableRandom random = random(i, 0);
+        long k = position(i);
+        boolean isMale = k == 1 ? random.nextBoolean() : k % 2 == 0;
+        String given = isMale ? pick(MALE_NAMES, random) : pick(FEMALE_NAMES, random);
+        String surname = surname(i);
+        int born = 1990 - 28 * generation(i) - random.nextInt(8);
+
+        line(writer, 0, xref('I', i), "INDI", null);
+        line(writer, 1, null, "NAME", given + " /" + surname + "/");
+        line(writer, 2, null, "GIVN", given);
+        line(writer, 2, null, "SURN", surname);
+        line(writer, 1, null, "SEX", isMale ? "M" : "F");
+        event(writer, "BIRT", date(born, random), random);
+        if (random.nextDouble() < 0.6) {
+            event(writer, "CHR", "ABT " + born, random);
+        }
+        if (born < 1940 || random.nextDouble() < 0.2) {
+            int died = born + 20 + random.nextInt(70);
+            event(writer, "DEAT", date(died, random), random);
+            if (random.nextDouble() < 0.5) {
+                event(writer, "BURI", random.nextBoolean() ? date(died, random) : null, random);
+            }
+        }
+
+        long family = childOf(i);
+        if (family >= 0) {
+            line(writer, 1, null, "FAMC", xref('F', family));
+        }
+        if (k > 1 && hasParents(individual(tree(i), k / 2))) {
+            line(writer, 1, null, "FAMS", xref('F', individual(tree(i), k / 2)));
+        }
+
+        if (sources > 0) {
+            int citations = random.nextInt(3);
+            for (int c = 0; c < citations; c++) {
+                line(writer, 1, null, "SOUR", xref('S', random.nextInt(sources)));
+                line(writer, 2, null, "PAGE", "p. " + (1 + random.nextInt(500)));
+                if (textSize > 0) {
+                    line(writer, 2, null, "DATA", null);
+                    text(writer, 3, "TEXT", html(textSize, random));
+                }
+            }
+        }
+
+        if (random.nextDouble() < mediaRate) {
+            line(writer, 1, null, "OBJE", null);
+            line(writer, 2, null, "FILE", mediaUrl + "p" + (i + 1) + ".jpg");
+            line(writer, 3, null, "FORM", "jpg");
+            line(writer, 2, null, "TITL", given + " " + surname);
+        }
+
+        if (noteSize > 0) {
+            text(writer, 1, "NOTE", words(noteSize, random));
+        }
+    }
+
+    /**
+     * Surname, as passed on from father to child, i.e. i shares surname with all (male) ancestors
+     * at positions k * 2^n in the tree.
+     */
+    private String surname(long i) {
+        long k = position(i);
+        long paternal = k >> Long.numberOfTrailingZeros(k);
+        return SURNAMES[random(individual(tree(i), paternal), 2).nextInt(SURNAMES.length)];
+    }
+
+    private void family(Writer writer, long i) throws IOException {
+        SplittableRandom random = random(i, 3);
+        long t = tree(i);
+        long k = position(i);
+
+        line(writer, 0, xref('F', i), "FAM", null);
+        line(writer, 1, null, "HUSB", xref('I', individual(t, 2 * k)));
+        line(writer, 1, null, "WIFE", xref('I', individual(t, 2 * k + 1)));
+        if (childOf(i) == i) {
+            line(writer, 1, null, "CHIL", xref('I', i));
+        }
+        if (k % 4 == 0 && k > 0) {
+            // Father of the husband in a couple of cousins, i.e. this family has two children
+            long couple = individual(t, k / 4);
+            if (isCollapsed(couple)) {
+                line(writer, 1, null, "CHIL", xref('I', individual(t, k + 3)));
+            }
+        }
+        int married = 1990 - 28 * generation(i) - 28 - random.nextInt(4);
+        event(writer, "MARR", date(married, random), random);
+    }
+
+    private void source(Writer writer, int s) throws IOException {
+        SplittableRandom random = random(s, 4);
+        line(writer, 0, xref('S', s - 1), "SOUR", null);
+        line(writer, 1, null, "TITL", pick(PLACES, random) + " kyrkoarkiv, " + (1700 + random.nextInt(250)));
+        line(writer, 1, null, "AUTH", "Riksarkivet");
+        if (textSize > 0) {
+            text(writer, 1, "TEXT", words(textSize, random));
+        }
+    }
+
+    private void event(Writer writer, String tag, String date, SplittableRandom random) throws IOException {
+        line(writer, 1, null, tag, null);
+        if (null != date) {
+            line(writer, 2, null, "DATE", date);
+        }
+        line(writer, 2, null, "PLAC", pick(PLACES, random));
+    }
+
+    private static String date(int year, SplittableRandom random) {
+        return switch (random.nextInt(6)) {
+            case 0 -> "ABT " + year;
+            case 1 -> "BEF " + year;
+            case 2 -> pick(MONTHS, random) + " " + year;
+            case 3 -> "BET " + year + " AND " + (year + 1 + random.nextInt(5));
+            case 4 -> String.valueOf(year);
+            default -> (1 + random.nextInt(28)) + " " + pick(MONTHS, random) + " " + year;
+        };
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * Plain text of about 'size' chars, as paragraphs separated by newlines
+     */
+    private static String words(int size, SplittableRandom random) {
+        StringBuilder buf = new StringBuilder(size + 16);
+        while (buf.length() < size) {
+            buf.append(pick(WORDS, random));
+            int r = random.nextInt(20);
+            buf.append(r == 0 ? "\n" : r == 1 ? ". " : " ");
+        }
+        return buf.toString().trim();
+    }
+
+    /**
+     * HTML text of about 'size' chars, with the elements and entities handled by Individual.getSourceLatex()
+     */
+    private static String html(int size, SplittableRandom random) {
+        StringBuilder buf = new StringBuilder(size + 128);
+        buf.append("<p>");
+        while (buf.length() < size) {
+            switch (random.nextInt(12)) {
+                case 0 -> buf.append("<strong>").append(pick(WORDS, random)).append("</strong> ");
+                case 1 -> buf.append("<it>").append(pick(WORDS, random)).append("</it> ");
+                case 2 -> buf.append("<span style=\"color: #333\">").append(pick(WORDS, random)).append("</span> ");
+                case 3 -> {
+                    String url = "https://www.digitalarkivet.no/census/person/pf0105848700" + (1000 + random.nextInt(9000));
+                    buf.append("<a href=\"").append(url).append("\">").append(url).append("</a> ");
+                }
+                case 4 -> buf.append("&amp; ");
+                case 5 -> buf.append("<br>");
+                case 6 -> buf.append("</p>\n<p>");
+                case 7 -> buf.append("<ul><li>").append(pick(WORDS, random)).append("<li>")
+                        .append(pick(WORDS, random)).append("</ul>");
+                case 8 -> buf.append(random.nextInt(100)).append("% ");
+                default -> buf.append(pick(WORDS, random)).append(' ');
+            }
+        }
+        buf.append("</p>");
+        return buf.toString();
+    }
+
+    /**
+     * Writes text, where newlines continue the text on CONT lines and long lines continue on CONC lines.
+     */
+    private void text(Writer writer, int level, String tag, String text) throws IOException {
+        String[] paragraphs = text.split("\n");
+        for (int p = 0; p < paragraphs.length; p++) {
+            String paragraph = paragraphs[p];
+            int end = split(paragraph, 0);
+            line(writer, p == 0 ? level : level + 1, null, p == 0 ? tag : "CONT", paragraph.substring(0, end));
+            while (end < paragraph.length()) {
+                int start = end;
+                end = split(paragraph, start);
+                line(writer, level + 1, null, "CONC", paragraph.substring(start, end));
+            }
+        }
+    }
+
+    /**
+     * Determines where to split a long line, i.e. not at a space (which may be trimmed)
+     * nor within a surrogate pair.
+     */
+    private int split(String value, int start) {
+        int end = start + lineLength;
+        if (end >= value.length()) {
+            return value.length();
+        }
+        while (end > start + 1 && (value.charAt(end) == ' ' || value.charAt(end - 1) == ' '
+                || Character.isLowSurrogate(value.charAt(end)))) {
+            end--;
+        }
+        return end;
+    }
+
+    private void line(Writer writer, int level, String pointer, String tag, String data) throws IOException {
+        writer.write(Integer.toString(level));
+        writer.write(' ');
+        if (null != pointer) {
+            writer.write(pointer);
+            writer.write(' ');
+        }
+        writer.write(tag);
+        if (null != data && !data.isEmpty()) {
+            writer.write(' ');
+            writer.write(data);
+        }
+        writer.write('\n');
+        lines++;
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options();
+        options.addOption(Option.builder("n")
+                .required(false)
+                .hasArg()
+                .desc("Number of individuals (default 1000)")
+                .longOpt("individuals")
+                .build());
+
+        options.addOption(Option.builder("f")
+                .required(false)
+                .hasArg()
+                .desc("Max number of families (default is one for each pair of parents)")
+                .longOpt("families")
+                .build());
+
+        options.addOption(Option.builder("g")
+                .required(false)
+                .hasArg()
+                .desc("Number of generations in each pedigree (default 10)")
+                .longOpt("generations")
+                .build());
+
+        options.addOption(Option.builder("c")
+                .required(false)
+                .hasArg()
+                .desc("Pedigree collapse rate, i.e. fraction of couples that are cousins (default 0.05)")
+                .longOpt("collapse")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Approximate size of notes, in chars (default 200)")
+                .longOpt("note-size")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Approximate size of source texts (HTML), in chars (default 400)")
+                .longOpt("text-size")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Number of sources (default 100)")
+                .longOpt("sources")
+                .build());
+
+        options.addOption(Option.builder("m")
+                .required(false)
+                .hasArg()
+                .desc("Fraction of individuals with media (default 0.1)")
+                .longOpt("media")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Base URL of media (default https://example.org/media/)")
+                .longOpt("media-url")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Max number of chars of data on a line, beyond which data continues on CONC lines (default " + DEFAULT_LINE_LENGTH + ")")
+                .longOpt("line-length")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Seed (default 1)")
+                .longOpt("seed")
+                .build());
+
+        options.addOption(Option.builder()
+                .required(false)
+                .hasArg()
+                .desc("Xref of first individual (default " + DEFAULT_ROOT + ")")
+                .longOpt("root")
+                .build());
+
+        try {
+            CommandLineParser parser = new DefaultParser();
+            CommandLine commandLine = parser.parse(options, args);
+
+            GedcomGenerator generator = new GedcomGenerator(Long.parseLong(commandLine.getOptionValue("n", "1000")));
+            if (commandLine.hasOption("f")) {
+                generator.setFamilies(Long.parseLong(commandLine.getOptionValue("f")));
+            }
+            if (commandLine.hasOption("g")) {
+                generator.setGenerations(Integer.parseInt(commandLine.getOptionValue("g")));
+            }
+            if (commandLine.hasOption("c")) {
+                generator.setCollapseRate(Double.parseDouble(commandLine.getOptionValue("c")));
+            }
+            if (commandLine.hasOption("note-size")) {
+                generator.setNoteSize(Integer.parseInt(commandLine.getOptionValue("note-size")));
+            }
+            if (commandLine.hasOption("text-size")) {
+                generator.setTextSize(Integer.parseInt(commandLine.getOptionValue("text-size")));
+            }
+            if (commandLine.hasOption("sources")) {
+                generator.setSources(Integer.parseInt(commandLine.getOptionValue("sources")));
+            }
+            if (commandLine.hasOption("m")) {
+                generator.setMediaRate(Double.parseDouble(commandLine.getOptionValue("m")));
+            }
+            if (commandLine.hasOption("media-url")) {
+                generator.setMediaUrl(commandLine.getOptionValue("media-url"));
+            }
+            if (commandLine.hasOption("line-length")) {
+                generator.setLineLength(Integer.parseInt(commandLine.getOptionValue("line-length")));
+            }
+            if (commandLine.hasOption("seed")) {
+                generator.setSeed(Long.parseLong(commandLine.getOptionValue("seed")));
+            }
+            if (commandLine.hasOption("root")) {
+                generator.setRoot(commandLine.getOptionValue("root"));
+            }
+
+            // Output to file, gzip compressed if named *.gz, or else to stdout
+            String[] files = commandLine.getArgs();
+            OutputStream os;
+            if (files.length > 0) {
+                Path file = Path.of(files[0]);
+                os = Files.newOutputStream(file);
+                if (file.getFileName().toString().endsWith(".gz")) {
+                    os = new GZIPOutputStream(os, 1 << 16);
+                }
+            } else {
+                os = System.out;
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), 1 << 20)) {
+                long lines = generator.generate(writer);
+                System.err.println("Generated " + lines + " lines");
+            }
+        }
+        catch (ParseException | IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        catch (IOException ioe) {
+            System.err.println("Failed to generate GEDCOM: " + ioe.getMessage());
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.gautelis.gedcom2latex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Enumeration;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A GEDZIP archive, i.e. a zip file holding a GEDCOM file named "gedcom.ged" and
+ * (optionally) media files referenced from the GEDCOM file by their path in the archive.
+ * <p/>
+ * Only the central directory of the archive is read up front. Entries are read
+ * (and decompressed) when opened.
+ */
+public class GedzipArchive implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(GedzipArchive.class);
+
+    public static final String GEDCOM_ENTRY = "gedcom.ged";
+
+    private final Path path;
+    private final ZipFile zip;
+
+    public GedzipArchive(Path path) throws IOException {
+        this.path = path;
+        this.zip = new ZipFile(path.toFile(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Opens the GEDCOM file. If there is no "gedcom.ged" (as for zip files that are not
+     * strictly GEDZIP), a single *.ged file in the archive is accepted instead.
+     */
+    public InputStream openGedcom() throws IOException {
+        ZipEntry entry = zip.getEntry(GEDCOM_ENTRY);
+        if (null == entry) {
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements(); ) {
+                ZipEntry candidate = entries.nextElement();
+                if (!candidate.isDirectory() && candidate.getName().toLowerCase().endsWith(".ged")) {
+                    if (null != entry) {
+                        throw new IOException("No " + GEDCOM_ENTRY + ", and more than one GEDCOM file in " + path);
+                    }
+                    entry = candidate;
+                }
+            }
+            if (null == entry) {
+                throw new IOException("No GEDCOM file in " + path);
+            }
+        }
+        return zip.getInputStream(entry);
+    }
+
+    /**
+     * Finds media file, given a reference (FILE) from the GEDCOM file. References are
+     * URL encoded paths in the archive, e.g. "photos/J%C3%B8rgen.jpg".
+     */
+    public Optional<ZipEntry> getMedia(String reference) {
+        if (null == reference || reference.isEmpty()) {
+            return Optional.empty();
+        }
+        ZipEntry entry = zip.getEntry(reference);
+        if (null == entry) {
+            try {
+                entry = zip.getEntry(URLDecoder.decode(reference, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException iae) {
+                // Not URL encoded
+            }
+        }
+        return Optional.ofNullable(entry).filter(e -> !e.isDirectory());
+    }
+
+    /**
+     * Extracts media file into 'directory', keeping its path in the archive (so that e.g.
+     * "photos/1.jpg" and "scans/1.jpg" are different files), unless it has already been extracted.
+     * Entries that are absolute or refer to a parent directory ("..") are not extracted.
+     * @return extracted file, or empty if there is no such media file in the archive
+     */
+    public Optional<File> extractMedia(String reference, File directory) throws IOException {
+        Optional<ZipEntry> entry = getMedia(reference);
+        if (entry.isEmpty()) {
+            return Optional.empty();
+        }
+        String name = entry.get().getName();
+        Path file = resolve(directory.toPath(), name);
+        if (!Files.exists(file)) {
+            Files.createDirectories(file.getParent());
+            try (InputStream is = zip.getInputStream(entry.get())) {
+                Files.copy(is, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.debug("Extracted {} from {}", name, path);
+        }
+        return Optional.of(file.toFile());
+    }
+
+    /**
+     * Path of entry 'name' (as given in archive) below 'directory'
+     */
+    static Path resolve(Path directory, String name) throws IOException {
+        String normalized = name.replace('\\', '/');
+        if (normalized.startsWith("/") || (normalized.length() > 1 && normalized.charAt(1) == ':')) {
+            throw new IOException("Refusing to extract absolute path: " + name);
+        }
+        for (String segment : normalized.split("/")) {
+            if (segment.equals("..")) {
+                throw new IOException("Refusing to extract path outside of directory: " + name);
+            }
+        }
+        Path base = directory.toAbsolutePath().normalize();
+        Path file = base.resolve(normalized).normalize();
+        if (!file.startsWith(base) || file.equals(base)) {
+            throw new IOException("Refusing to extract path outside of directory: " + name);
+        }
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
@@ -0,0 +1,183 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.LazyStructure;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Loads a GEDCOM file lazily.
+ * <p/>
+ * Only the level 0 records are located up front (see {@link RecordIndex}), and each record
+ * is represented by a {@link LazyStructure}. The nested structures of a record are parsed
+ * the first time they are asked for, after which the record is kept in a bounded cache
+ * of recently used records (i.e. the least recently used record is evicted). Records that
+ * are never asked for (typically NOTE, SOUR and OBJE records) are never parsed.
+ * <p/>
+ * Since records may be evicted, wrappers of records (e.g. {@link org.gautelis.gedcom2latex.model.gedcom.INDI})
+ * do not keep what they wrap from them (see {@link Structure#isLazy()}), so the cache bounds
+ * the number of parsed records kept.
+ * <p/>
+ * The file is kept open for as long as records may be loaded, i.e. until {@link #close()}.
+ * Records may be loaded from any number of threads at once. Records are looked up (and evicted)
+ * under a lock on the cache, but are loaded outside of it, so each record is loaded at most once
+ * at a time and only threads asking for the same record wait for it to be loaded.
+ */
+public class LazyLoader implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(LazyLoader.class);
+
+    public static final int DEFAULT_CACHE_SIZE = 10_000; // records
+
+    private final Map</* id */ String, Structure> index;
+    private final Map</* tag */ String, Collection<Structure>> structures;
+    private final XrefTable xrefs;
+    private final Function<XrefTable, WritableStructureStore> stores;
+
+    // Loaded (or loading) records in order of use, where the least recently used record is evicted. Guarded by lock on cache.
+    private final Map</* record */ Integer, Future<Structure>> cache;
+    private final int cacheSize;
+
+    private volatile RandomAccessLoader loader = null;
+    private final LongAdder loads = new LongAdder();
+
+    public LazyLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures
+    ) {
+        this(index, structures, new XrefTable(), HeapStructureStore::forRecord, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param xrefs maps pointers to ids
+     * @param stores creates stores into which records are parsed, one per record,
+     *               e.g. {@link HeapStructureStore#forRecord(XrefTable)}
+     * @param cacheSize max number of parsed records kept
+     */
+    public LazyLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final XrefTable xrefs,
+            final Function<XrefTable, WritableStructureStore> stores,
+            final int cacheSize
+    ) {
+        Objects.requireNonNull(xrefs, "xrefs");
+        Objects.requireNonNull(stores, "stores");
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        }
+        this.index = index;
+        this.structures = structures;
+        this.xrefs = xrefs;
+        this.stores = stores;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, /* access order */ true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Future<Structure>> eldest) {
+                // Evicted records are parsed again if asked for later
+                return size() > LazyLoader.this.cacheSize;
+            }
+        };
+    }
+
+    public void load(File file) throws IOException {
+        load(file, false);
+    }
+
+    /**
+     * @param keepIndex whether to keep the index of records next to 'file', see {@link RecordIndex#of(Path, boolean)}
+     */
+    public void load(File file, boolean keepIndex) throws IOException {
+        Path path = file.toPath();
+        RecordIndex recordIndex = RecordIndex.of(path, keepIndex);
+        loader = new RandomAccessLoader(path, recordIndex, xrefs, stores);
+
+        for (int record = 0; record < recordIndex.size(); record++) {
+            String pointer = recordIndex.getPointer(record);
+            Structure structure = new LazyStructure(record, recordIndex.getTag(record), pointer, xrefs, this::materialize);
+
+            if (null != structures) {
+                structures.computeIfAbsent(structure.getTag(), k -> new ArrayList<>()).add(structure);
+            }
+            if (null != index && null != pointer) {
+                index.put(pointer, structure);
+            }
+        }
+        log.debug("Located {} records in {}", recordIndex.size(), file.getName());
+    }
+
+    private Structure materialize(int record) {
+        Future<Structure> future;
+        FutureTask<Structure> task = null;
+        synchronized (cache) {
+            future = cache.get(record); // now the most recently used
+            if (null == future) {
+                future = task = new FutureTask<>(() -> load(record));
+                cache.put(record, task);
+            }
+        }
+        if (null != task) {
+            task.run();
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException ee) {
+            // Not kept, so that the record is loaded again if asked for later
+            synchronized (cache) {
+                cache.remove(record, future);
+            }
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            if (cause instanceof Error e) {
+                throw e;
+            }
+            throw new IllegalStateException("Failed to load record " + record, cause);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for record " + record, ie);
+        }
+    }
+
+    // Called by at most one thread at a time per record, outside of lock on cache (see materialize)
+    private Structure load(int record) {
+        Structure structure;
+        try {
+            structure = loader.load(new int[] { record }).get(0);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Failed to load record at offset " + loader.getRecordIndex().getOffset(record), ioe);
+        }
+        loads.increment();
+        return structure;
+    }
+
+    /**
+     * Number of times a record has been parsed, including records that were parsed again after eviction
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null != loader) {
+            loader.close();
+        }
+    }
+}
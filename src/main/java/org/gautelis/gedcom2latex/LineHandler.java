@@ -1,88 +1,430 @@
 package org.gautelis.gedcom2latex;
 
+import org.gautelis.gedcom2latex.jfr.LineEvent;
+import org.gautelis.gedcom2latex.jfr.RecordEvent;
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.OffHeapStructureStore;
+import org.gautelis.gedcom2latex.model.RecordStructure;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.StructureStore;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.Tag;
+import org.gautelis.gedcom2latex.model.XrefTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 
+/**
+ * Builds structures from GEDCOM lines.
+ * <p/>
+ * Parsing is traced using JFR events (see {@link LineEvent} and {@link RecordEvent}), which
+ * cost (next to) nothing unless they are being recorded. Tracing to the log, which is costly,
+ * is only available if the system property "gedcom2latex.trace" is set to "true" (at startup).
+ */
 public class LineHandler {
     private static final Logger log = LoggerFactory.getLogger(LineHandler.class);
 
+    // Constant, so tracing to log is compiled out unless enabled
+    private static final boolean TRACE = Boolean.getBoolean("gedcom2latex.trace");
+
     private final Map</* id */ String, Structure> index;
 
     private final Map</* tag */ String, Collection<Structure>> structures;
 
-    private final Stack<Structure> stack = new Stack<>();
+    private final Consumer<Structure> consumer;
+
+    // Maps pointers to ids
+    private final XrefTable xrefs;
+
+    // Creates stores, into which lines are added
+    private final Function<XrefTable, WritableStructureStore> stores;
+
+    // Current store
+    private WritableStructureStore store;
+
+    // Store that is cleared and reused for each record when streaming (along with xrefs), or null if each record has its own store
+    private final HeapStructureStore reusedStore;
+
+    // Determines which lines are kept
+    private final Projection projection;
+
+    // Maps xrefs, e.g. into a namespace (see XrefNamespace), or null if xrefs are kept as is
+    private final UnaryOperator<String> xrefMapping;
+
+    // Level of line being skipped (along with everything below it), or -1 if not skipping
+    private long skipLevel = -1L;
+
+    // Current top-level structure
+    private Structure record = null;
+
+    // Traces current top-level structure, or null if not recorded
+    private RecordEvent recordEvent = null;
+    private int recordLines = 0;
+
+    // Counts lines, records and nodes, until reported at finish (see Statistics)
+    private long lineCount = 0L;
+    private long recordCount = 0L;
+    private long nodeCount = 0L;
+
+    // Keep track of "current" structure (using a stack of open nodes)
+    private int depth = 0;
+    private int[] stack = new int[16];
+    private long[] stackLevels = new long[16];
+    private int[] lastChildren = new int[16]; // last node added to each open node
+    private Projection.Node[] positions = new Projection.Node[16]; // position of each open node in projection
 
     public LineHandler(Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures) {
+        this(index, structures, null);
+    }
+
+    /**
+     * Creates a streaming line handler, that hands each level 0 record (INDI, FAM, SOUR, ...)
+     * to 'consumer' as soon as the record is complete. Every record is parsed into the same
+     * store, which is cleared when the next record starts, so a record (and any structure
+     * within it) is only valid until the consumer returns.
+     * <p/>
+     * Since there is no index to link records against, xrefs (and places) are only kept for
+     * the current record as well, i.e. the table of xrefs is cleared along with the store.
+     */
+    public LineHandler(Consumer<Structure> consumer) {
+        this(null, null, consumer, new XrefTable(), HeapStructureStore::forRecord, Projection.ALL, null, true);
+    }
+
+    /**
+     * @param index where records are indexed on ID, or null if records should not be retained
+     * @param structures where records are indexed on tag, or null if records should not be retained
+     * @param consumer receives each level 0 record as soon as it is complete (may be null)
+     */
+    public LineHandler(
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            Consumer<Structure> consumer
+    ) {
+        this(index, structures, consumer, new XrefTable(), HeapStructureStore::new);
+    }
+
+    /**
+     * @param index where records are indexed on ID, or null if records should not be retained
+     * @param structures where records are indexed on tag, or null if records should not be retained
+     * @param consumer receives each level 0 record as soon as it is complete (may be null)
+     * @param xrefs maps pointers to ids, may be shared with other line handlers
+     * @param stores creates stores into which lines are added, e.g. {@link HeapStructureStore} or {@link OffHeapStructureStore}
+     */
+    public LineHandler(
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            Consumer<Structure> consumer, XrefTable xrefs, Function<XrefTable, WritableStructureStore> stores
+    ) {
+        this(index, structures, consumer, xrefs, stores, Projection.ALL);
+    }
+
+    /**
+     * @param index where records are indexed on ID, or null if records should not be retained
+     * @param structures where records are indexed on tag, or null if records should not be retained
+     * @param consumer receives each level 0 record as soon as it is complete (may be null)
+     * @param xrefs maps pointers to ids, may be shared with other line handlers
+     * @param stores creates stores into which lines are added, e.g. {@link HeapStructureStore} or {@link OffHeapStructureStore}
+     * @param projection determines which lines are kept, lines not kept are discarded
+     */
+    public LineHandler(
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            Consumer<Structure> consumer, XrefTable xrefs, Function<XrefTable, WritableStructureStore> stores,
+            Projection projection
+    ) {
+        this(index, structures, consumer, xrefs, stores, projection, null);
+    }
+
+    /**
+     * @param index where records are indexed on ID, or null if records should not be retained
+     * @param structures where records are indexed on tag, or null if records should not be retained
+     * @param consumer receives each level 0 record as soon as it is complete (may be null)
+     * @param xrefs maps pointers to ids, may be shared with other line handlers
+     * @param stores creates stores into which lines are added, e.g. {@link HeapStructureStore} or {@link OffHeapStructureStore}
+     * @param projection determines which lines are kept, lines not kept are discarded
+     * @param xrefMapping maps pointers, as well as pointer valued data, before they are added (may be null)
+     */
+    public LineHandler(
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            Consumer<Structure> consumer, XrefTable xrefs, Function<XrefTable, WritableStructureStore> stores,
+            Projection projection, UnaryOperator<String> xrefMapping
+    ) {
+        this(index, structures, consumer, xrefs, stores, projection, xrefMapping, false);
+    }
+
+    private LineHandler(
+            Map<String, Structure> index, Map</* tag/type */ String, Collection<Structure>> structures,
+            Consumer<Structure> consumer, XrefTable xrefs, Function<XrefTable, WritableStructureStore> stores,
+            Projection projection, UnaryOperator<String> xrefMapping, boolean reuseStore
+    ) {
+        Objects.requireNonNull(xrefs, "xrefs");
+        Objects.requireNonNull(stores, "stores");
+        Objects.requireNonNull(projection, "projection");
         this.index = index;
         this.structures = structures;
+        this.consumer = consumer;
+        this.xrefs = xrefs;
+        this.stores = stores;
+        this.projection = projection;
+        this.xrefMapping = xrefMapping;
+        this.store = stores.apply(xrefs);
+        this.reusedStore = reuseStore ? (HeapStructureStore) store : null;
     }
 
     public Map<String, Structure> getIndex() {
         return index;
     }
 
-    private String indent(long level) {
-        StringBuilder buf = new StringBuilder();
-        for (long i=0L; i < level; i++) {
-            buf.append("  ");
+    public XrefTable getXrefs() {
+        return xrefs;
+    }
+
+    private static String indent(long level) {
+        return "  ".repeat((int) level);
+    }
+
+    /**
+     * Determines whether line[start, end) will be discarded, since we are skipping lines below
+     * a line that was not kept by the projection. Only the level of the line is looked at.
+     * <p/>
+     * A line that is skipped is not handed to this handler, so it is counted (as parsed) here.
+     */
+    public boolean isSkipped(CharSequence line, int start, int end) {
+        if (skipLevel < 0L) {
+            return false;
         }
-        return buf.toString();
+        long level = LineTokenizer.parseLevel(line, start, end);
+        if (level < 0L /* continuation line */ || level > skipLevel) {
+            recordLines++;
+            lineCount++;
+            return true;
+        }
+        return false;
     }
 
     public void accept(long level, String pointer, String tag, String data){
+        add(level, pointer, tag, 0, tag.length(), data, 0, null != data ? data.length() : 0);
+    }
 
-        Structure structure = new Structure(level, pointer, tag, data);
-        log.debug("Read: {}{}", indent(level), structure);
+    /**
+     * Accepts a tokenized line, copying data straight from the line into the store.
+     */
+    public void accept(LineTokenizer tokens) {
+        CharSequence line = tokens.getLine();
+        add(tokens.getLevel(), tokens.getPointer(),
+                line, tokens.getTagStart(), tokens.getTagEnd(),
+                tokens.hasData() ? line : null, tokens.getDataStart(), tokens.getDataEnd());
+    }
+
+    private void add(
+            long level, String pointer,
+            CharSequence tag, int tagStart, int tagEnd,
+            CharSequence data, int dataStart, int dataEnd
+    ) {
+        recordLines++;
+        lineCount++;
+        if (skipLevel >= 0L) {
+            if (level > skipLevel) {
+                return;
+            }
+            skipLevel = -1L;
+        }
+
+        // Find enclosing structure
+        if (depth == 0) {
+            assert level == 0L;
+        }
+        else if (level <= stackLevels[depth - 1]) {
+            long current;
+            do {
+                if (depth == 0)
+                    break;
+
+                current = stackLevels[--depth];
+                if (TRACE) {
+                    log.trace("Popping: {}", stack[depth]);
+                }
+            } while (current > level);
+        }
+
+        int _tag = Tag.intern(tag, tagStart, tagEnd);
+        Projection.Node position = projection.child(depth > 0 ? positions[depth - 1] : projection.root(), _tag);
+
+        LineEvent lineEvent = new LineEvent();
+        if (lineEvent.isEnabled()) {
+            lineEvent.level = (int) level;
+            lineEvent.tag = Tag.name(_tag);
+            lineEvent.pointer = pointer;
+            lineEvent.dataLength = null != data ? dataEnd - dataStart : 0;
+            lineEvent.kept = null != position;
+            lineEvent.commit();
+        }
+
+        if (null == position) {
+            // Not kept, so skip this line and everything below it
+            if (level == 0L && null != record) {
+                complete(record);
+                record = null;
+            }
+            skipLevel = level;
+            return;
+        }
 
-        // Keep track of all top-level structures (individuals, families, ...)
         if (level == 0L) {
-            // Store indexed on type/tag (includes HEAD, TRLR)
-            Collection<Structure> taggedStructures = structures.computeIfAbsent(structure.getTag(), k -> new ArrayList<>());
-            taggedStructures.add(structure);
+            // Any previous top-level structure is now complete
+            if (null != record) {
+                complete(record);
+            }
+            if (RecordEvent.isRecorded()) {
+                recordEvent = new RecordEvent();
+                recordEvent.begin();
+                recordEvent.tag = Tag.name(_tag);
+                recordEvent.pointer = pointer;
+            }
+            recordLines = 1;
+            recordCount++;
 
-            // Store indexed on ID (excludes HEAD, TRLR)
-            Optional<String> id = structure.getPointer();
-            id.ifPresent(s -> index.put(s, structure));
+            // Don't keep old records around if we are streaming. Note that the stack is empty at this point.
+            if (null != reusedStore) {
+                reusedStore.clear();
+                xrefs.clear();
+            } else if ((isStreaming() && store.size() > 0) || store.isFull()) {
+                store.freeze();
+                store = stores.apply(xrefs);
+            }
         }
 
-        // Keep track of "current" structure (using a stack)
-        if (stack.isEmpty()) {
-            assert level == 0L;
+        int parent = StructureStore.NONE;
+        int previousSibling = StructureStore.NONE;
+        if (depth > 0) {
+            parent = stack[depth - 1];
+            previousSibling = lastChildren[depth - 1];
+        }
+
+        if (null != xrefMapping) {
+            if (null != pointer) {
+                pointer = xrefMapping.apply(pointer);
+            }
+            if (null != data) {
+                int start = dataStart;
+                int end = dataEnd;
+                while (start < end && Character.isWhitespace(data.charAt(start))) {
+                    start++;
+                }
+                while (end > start && Character.isWhitespace(data.charAt(end - 1))) {
+                    end--;
+                }
+                if (XrefTable.isPointer(data, start, end)) {
+                    data = xrefMapping.apply(data.subSequence(start, end).toString());
+                    dataStart = 0;
+                    dataEnd = data.length();
+                }
+            }
+        }
+
+        int xref = null != pointer ? xrefs.intern(pointer) : XrefTable.NONE;
+        int node = store.add(parent, previousSibling, (int) level, xref, _tag, data, dataStart, dataEnd);
+        nodeCount++;
+        if (depth > 0) {
+            lastChildren[depth - 1] = node;
+        }
+
+        if (depth == 0) {
+            record = new RecordStructure(store, node);
+        }
+        if (TRACE && log.isTraceEnabled()) {
+            log.trace("Read: {}{}", indent(level), new Structure(store, node));
         }
-        else {
-            Structure current = stack.peek();
-            if (structure.getLevel() <= current.getLevel()) {
-                do {
-                    if (stack.isEmpty())
-                        break;
 
-                    current = stack.pop();
-                    log.trace("Popping: {}", current);
-                } while (current.getLevel() > structure.getLevel());
+        // Keep track of all top-level structures (individuals, families, ...)
+        if (level == 0L) {
+            if (null != structures) {
+                // Store indexed on type/tag (includes HEAD, TRLR)
+                Collection<Structure> taggedStructures = structures.computeIfAbsent(record.getTag(), k -> new ArrayList<>());
+                taggedStructures.add(record);
             }
 
-            if (!stack.isEmpty()) {
-                current = stack.peek();
-                current.addStructure(structure);
+            if (null != index) {
+                // Store indexed on ID (excludes HEAD, TRLR)
+                final Structure structure = record;
+                Optional<String> id = structure.getPointer();
+                id.ifPresent(s -> index.put(s, structure));
             }
         }
 
-        stack.push(structure);
-        log.trace("Pushing: {}", structure);
+        push(node, level, position);
+    }
+
+    private void push(int node, long level, Projection.Node position) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, 2 * depth);
+            stackLevels = Arrays.copyOf(stackLevels, 2 * depth);
+            lastChildren = Arrays.copyOf(lastChildren, 2 * depth);
+            positions = Arrays.copyOf(positions, 2 * depth);
+        }
+        stack[depth] = node;
+        stackLevels[depth] = level;
+        lastChildren[depth] = StructureStore.NONE;
+        positions[depth] = position;
+        depth++;
+        if (TRACE) {
+            log.trace("Pushing: {}", node);
+        }
+    }
+
+    /**
+     * Signals end of input, completing the last top-level structure. Thereafter, all
+     * structures are read-only.
+     */
+    public void finish() {
+        if (null != record) {
+            complete(record);
+        }
+        record = null;
+        depth = 0;
+        skipLevel = -1L;
+        store.freeze();
 
+        Statistics.SHARED.parsed(lineCount, recordCount, nodeCount);
+        lineCount = recordCount = nodeCount = 0L;
+    }
+
+    private boolean isStreaming() {
+        return null == index && null == structures;
+    }
+
+    private void complete(Structure structure) {
+        if (null != recordEvent) {
+            recordEvent.lines = recordLines;
+            recordEvent.commit();
+            recordEvent = null;
+        }
+        if (null != consumer) {
+            if (isStreaming() && null == reusedStore) {
+                // Nothing more will be added to this store (the store of this record)
+                store.freeze();
+            }
+            consumer.accept(structure);
+        }
     }
 
     public void accept(String data) {
-        Structure current = stack.peek();
-        if (null == current) {
+        recordLines++;
+        lineCount++;
+        if (skipLevel >= 0L) {
+            // Continues a line that was skipped
+            return;
+        }
+        if (depth == 0) {
             log.error("Stack is empty: No current structure when appending data: " + data);
         } else {
-            log.debug("Read: {}{}", indent(current.getLevel()), data);
-            current.appendData(data);
+            int current = stack[depth - 1];
+            if (TRACE && log.isTraceEnabled()) {
+                log.trace("Read: {}{}", indent(stackLevels[depth - 1]), data);
+            }
+            store.appendData(current, data);
         }
     }
 }
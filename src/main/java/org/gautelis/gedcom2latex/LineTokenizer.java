@@ -0,0 +1,201 @@
+package org.gautelis.gedcom2latex;
+
+/**
+ * Splits a GEDCOM line into level, pointer, tag and data.
+ * <p/>
+ * This is a hand-written replacement for the regular expression previously used by the {@link Loader}:
+ * <pre>
+ * ^(?&lt;level&gt;0|[1-9]+[0-9]*) ((?&lt;pointer&gt;@[^@]+@) |)(?&lt;tag&gt;[A-Za-z0-9_]+)(?&lt;data&gt; [^\n\r]*|)$
+ * </pre>
+ * The line is scanned once, from left to right, and the individual parts are only recorded as
+ * offsets into the line. Strings are created on demand (if at all) by the caller.
+ * <p/>
+ * A tokenizer is not thread safe, but may be reused for any number of lines.
+ */
+public final class LineTokenizer {
+    // Lines with longer levels are not record lines. Levels in practice have one or two digits, but the
+    // bound is only there to avoid overflow: any level of nine digits fits in an int (as levels are stored)
+    private static final int MAX_LEVEL_DIGITS = 9;
+
+    private CharSequence line;
+    private long level;
+    private int pointerStart;
+    private int pointerEnd;
+    private int tagStart;
+    private int tagEnd;
+    private int dataStart;
+    private int dataEnd;
+
+    public boolean tokenize(CharSequence line) {
+        return tokenize(line, 0, line.length());
+    }
+
+    /**
+     * Tokenizes line[start, end).
+     * @return true if the line is a GEDCOM record line, false if it is not (i.e. a continuation line)
+     */
+    public boolean tokenize(CharSequence line, int start, int end) {
+        this.line = line;
+        pointerStart = pointerEnd = -1;
+        dataStart = dataEnd = -1;
+
+        // <level>
+        int pos = start;
+        if (pos >= end) {
+            return false;
+        }
+        char c = line.charAt(pos);
+        if (c < '0' || c > '9') {
+            return false;
+        }
+        long _level = c - '0';
+        pos++;
+        if (_level != 0L) {
+            while (pos < end && (c = line.charAt(pos)) >= '0' && c <= '9') {
+                if (pos - start >= MAX_LEVEL_DIGITS) {
+                    return false;
+                }
+                _level = 10L * _level + (c - '0');
+                pos++;
+            }
+        }
+        if (pos >= end || line.charAt(pos) != ' ') {
+            return false;
+        }
+        pos++;
+
+        // (<pointer> )?
+        if (pos < end && line.charAt(pos) == '@') {
+            int p = pos + 1;
+            while (p < end && line.charAt(p) != '@') {
+                p++;
+            }
+            if (p >= end || p == pos + 1) {
+                return false;
+            }
+            p++; // include closing '@'
+            if (p >= end || line.charAt(p) != ' ') {
+                return false;
+            }
+            pointerStart = pos;
+            pointerEnd = p;
+            pos = p + 1;
+        }
+
+        // <tag>
+        int _tagStart = pos;
+        while (pos < end && isTagChar(line.charAt(pos))) {
+            pos++;
+        }
+        if (pos == _tagStart) {
+            return false;
+        }
+        tagStart = _tagStart;
+        tagEnd = pos;
+
+        // ( <data>)?
+        if (pos < end) {
+            if (line.charAt(pos) != ' ') {
+                return false;
+            }
+            pos++;
+            for (int p = pos; p < end; p++) {
+                c = line.charAt(p);
+                if (c == '\n' || c == '\r') {
+                    return false;
+                }
+            }
+            dataStart = pos;
+            dataEnd = end;
+        }
+
+        level = _level;
+        return true;
+    }
+
+    /**
+     * Parses only the level of line[start, end), with the same rules as {@link #tokenize(CharSequence, int, int)}.
+     * @return level, or -1 if line does not start with a level (followed by a space)
+     */
+    public static long parseLevel(CharSequence line, int start, int end) {
+        int pos = start;
+        if (pos >= end) {
+            return -1L;
+        }
+        char c = line.charAt(pos);
+        if (c < '0' || c > '9') {
+            return -1L;
+        }
+        long level = c - '0';
+        pos++;
+        if (level != 0L) {
+            while (pos < end && (c = line.charAt(pos)) >= '0' && c <= '9') {
+                if (pos - start >= MAX_LEVEL_DIGITS) {
+                    return -1L;
+                }
+                level = 10L * level + (c - '0');
+                pos++;
+            }
+        }
+        if (pos >= end || line.charAt(pos) != ' ') {
+            return -1L;
+        }
+        return level;
+    }
+
+    private static boolean isTagChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    public CharSequence getLine() {
+        return line;
+    }
+
+    public long getLevel() {
+        return level;
+    }
+
+    public boolean hasPointer() {
+        return pointerStart >= 0;
+    }
+
+    public int getPointerStart() {
+        return pointerStart;
+    }
+
+    public int getPointerEnd() {
+        return pointerEnd;
+    }
+
+    public int getTagStart() {
+        return tagStart;
+    }
+
+    public int getTagEnd() {
+        return tagEnd;
+    }
+
+    public boolean hasData() {
+        return dataStart >= 0;
+    }
+
+    public int getDataStart() {
+        return dataStart;
+    }
+
+    public int getDataEnd() {
+        return dataEnd;
+    }
+
+    public String getPointer() {
+        return hasPointer() ? line.subSequence(pointerStart, pointerEnd).toString() : null;
+    }
+
+    public String getTag() {
+        return line.subSequence(tagStart, tagEnd).toString();
+    }
+
+    public String getData() {
+        return hasData() ? line.subSequence(dataStart, dataEnd).toString() : null;
+    }
+}
@@ -1,24 +1,19 @@
 package org.gautelis.gedcom2latex;
 
+import org.gautelis.gedcom2latex.model.Structure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigInteger;
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.regex.Pattern;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public class Loader {
 
     private static final Logger log = LoggerFactory.getLogger(Loader.class);
 
-    // Matches a GEDCOM record on a line: <level> (<pointer>)? <tag> (<data>)?
-    //private final String RE = "^(?<level>0|[1-9]+[0-9]*) (@(?<pointer>[^@]+)@ |)(?<tag>[A-Za-z0-9_]+)(?<data> [^\n\r]*|)$";
-    private final String RE = "^(?<level>0|[1-9]+[0-9]*) ((?<pointer>@[^@]+@) |)(?<tag>[A-Za-z0-9_]+)(?<data> [^\n\r]*|)$";
-
-    private final Pattern pattern = Pattern.compile(RE);
+    private final LineTokenizer tokenizer = new LineTokenizer();
 
     private final LineHandler handler;
 
@@ -27,62 +22,102 @@ public class Loader {
     }
 
     /**
-     * Removes (possible) BOM, since it interferes with the RE matching
-     * @param value a string that may contain a UTF-8 BOM (or not)
+     * Determines length of (possible) BOM at the beginning of a byte sequence.
+     * See https://en.wikipedia.org/wiki/Byte_order_mark
+     * @param bytes the first bytes of a file
+     * @param length number of valid bytes in 'bytes'
+     * @return length of BOM, or 0 if there is no BOM
+     */
+    public static int bomLength(byte[] bytes, int length) {
+        if (length >= 3 && (bytes[0] & 0xff) == 0xef && (bytes[1] & 0xff) == 0xbb && (bytes[2] & 0xff) == 0xbf) {
+            // UTF-8
+            return 3;
+        }
+        if (length >= 2 && (((bytes[0] & 0xff) == 0xfe && (bytes[1] & 0xff) == 0xff)
+                         || ((bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xfe))) {
+            // UTF-16BE or UTF16-LE
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Removes (possible) BOM, since it interferes with the tokenizing
+     * @param value a string that may contain a BOM (or not)
      * @return a trimmed string without the BOM
      */
     public static String trimBOM(String value) {
-        // UTF-8 BOM is EF BB BF, see https://en.wikipedia.org/wiki/Byte_order_mark
-        String bom = String.format("%x", new BigInteger(1, value.substring(0, 3).getBytes()));
+        if (null == value || value.isEmpty()) {
+            return value;
+        }
 
-        //BOM: 0xefbbbf3020
-        if ("efbbbf".equals(bom.substring(0, 6)))
-            // UTF-8
+        // Properly decoded BOM (a ZWNBSP) or its byte-swapped counterpart
+        char first = value.charAt(0);
+        if (first == '\uFEFF' || first == '\uFFFE') {
             return value.substring(1);
-        else if ("feff".equals(bom.substring(0, 4)) || "ffe".equals(bom.substring(0, 3)))
+        }
+
+        // BOM bytes that were decoded one byte per char
+        if (value.startsWith("\u00EF\u00BB\u00BF")) {
+            // UTF-8
+            return value.substring(3);
+        }
+        if (value.startsWith("\u00FE\u00FF") || value.startsWith("\u00FF\u00FE")) {
             // UTF-16BE or UTF16-LE
             return value.substring(2);
-        else
-            return value;
+        }
+        return value;
     }
 
+    /**
+     * Loads file, decoding it according to its BOM or header, see {@link GedcomCharsets#detect(java.nio.file.Path)}.
+     * The file may be compressed, see {@link GedcomFiles}.
+     */
     public void load(File file) throws IOException {
-        // As of version 7.0, a GEDCOM file is defined as UTF-8 encoded plain text.
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-
-            // Read all lines from the file, possibly removing BOM from first line
-            AtomicBoolean isFirstLine = new AtomicBoolean(true);
-
-            try (Stream<String> lines = reader.lines()) {
-                lines.forEach(line -> {
-                    if (isFirstLine.getAndSet(false)) {
-                        // First line may contain UTF-8 BOM or ZWNBSP (Zero Width No-Break Space)
-                        line = trimBOM(line.trim());
-                    }
+        load(file, GedcomCharsets.detect(file.toPath()));
+    }
+
+    public void load(File file, Charset charset) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(GedcomFiles.open(file.toPath()), charset))) {
+            String line = reader.readLine();
+            if (null != line) {
+                // First line may contain UTF-8 BOM or ZWNBSP (Zero Width No-Break Space)
+                accept(trimBOM(line.trim()));
+
+                while (null != (line = reader.readLine())) {
                     accept(line);
-                });
+                }
             }
         }
+        handler.finish();
     }
 
     public void load(final Stream<String> data) {
         data.forEach(this::accept);
+        handler.finish();
+    }
+
+    /**
+     * Streams a GEDCOM file, record by record, handing each level 0 record (INDI, FAM, SOUR, ...)
+     * to 'consumer' as soon as the record (including its nested structures) has been read.
+     * <p/>
+     * Every record is parsed into the same (reused) store, so aggregating or filtering a file
+     * this way needs no more heap than the largest single record, and allocates next to nothing
+     * per record. Hence, a record is only valid until the consumer returns, and consumers
+     * must copy whatever they need to keep.
+     */
+    public static void stream(File file, Consumer<Structure> consumer) throws IOException {
+        Loader loader = new Loader(new LineHandler(consumer));
+        loader.load(file);
     }
 
     public void accept(String line) {
-        java.util.regex.Matcher matcher = pattern.matcher(line);
-        if (matcher.matches()) {
+        if (handler.isSkipped(line, 0, line.length())) {
+            return;
+        }
+        if (tokenizer.tokenize(line)) {
             // A line matching the GEDCOM record format
-            long level = -1L;
-            String _level = matcher.group("level");
-            if (null != _level && !_level.isEmpty()) {
-                level = Long.parseLong(_level);
-            }
-
-            String pointer = matcher.group("pointer"); // may not exist (optional)
-            String tag = matcher.group("tag");
-            String data = matcher.group("data"); // may not exist (optional)
-            handler.accept(level, pointer, tag, data);
+            handler.accept(tokenizer);
 
         } else {
             // This line does not match a GEDCOM record format, so we assume this line is part of previous
@@ -90,4 +125,52 @@ public class Loader {
             handler.accept(line);
         }
     }
+
+    /**
+     * Accepts all lines in 'chars', split into lines the way BufferedReader does, i.e. at '\n', '\r' or "\r\n".
+     * @param isStartOfFile whether 'chars' starts at the beginning of a file, in which case the first
+     *                      line is trimmed (as in {@link #load(File)})
+     */
+    public void accept(CharSequence chars, boolean isStartOfFile) {
+        final int length = chars.length();
+        boolean isFirstLine = isStartOfFile;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c == '\n' || c == '\r') {
+                accept(chars, lineStart, i, isFirstLine);
+                isFirstLine = false;
+                if (c == '\r' && i + 1 < length && chars.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < length) {
+            accept(chars, lineStart, length, isFirstLine);
+        }
+    }
+
+    private void accept(CharSequence chars, int start, int end, boolean isFirstLine) {
+        if (isFirstLine) {
+            // First line may contain UTF-8 BOM or ZWNBSP (Zero Width No-Break Space)
+            accept(trimBOM(chars.subSequence(start, end).toString().trim()));
+        } else {
+            accept(chars, start, end);
+        }
+    }
+
+    /**
+     * Accepts line[start, end), without creating strings for the parts of the line.
+     */
+    public void accept(CharSequence line, int start, int end) {
+        if (handler.isSkipped(line, start, end)) {
+            return;
+        }
+        if (tokenizer.tokenize(line, start, end)) {
+            handler.accept(tokenizer);
+        } else {
+            handler.accept(line.subSequence(start, end).toString());
+        }
+    }
 }
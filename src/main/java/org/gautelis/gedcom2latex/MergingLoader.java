@@ -0,0 +1,247 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.Tag;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Loads several GEDCOM files, e.g. separate family branches, as if they were one.
+ * <p/>
+ * Files are parsed concurrently, each into its own index and structures, which are finally
+ * merged in the order the files were given. The xrefs of the first file are kept as is (but for
+ * escaping), whereas the xrefs of the other files are namespaced (see {@link XrefNamespace}),
+ * so they never collide.
+ * <p/>
+ * Records that appear in several files, e.g. the same individual, are linked through an alias
+ * file, with lines such as
+ * <pre>
+ * # file xref = file xref
+ * branch.ged @I7@ = main.ged @I500003@
+ * </pre>
+ * where files are given by name. Aliased xrefs are all mapped to the xref of the file given first,
+ * so that links to the record in any of the files are resolved to the same record. Only the record
+ * in the file given first is kept. Likewise, only the header (HEAD) of the first file is kept.
+ */
+public class MergingLoader {
+    private static final Logger log = LoggerFactory.getLogger(MergingLoader.class);
+
+    private final Map</* id */ String, Structure> index;
+    private final Map</* tag */ String, Collection<Structure>> structures;
+    private final ForkJoinPool pool;
+    private final XrefTable xrefs;
+    private final Function<XrefTable, WritableStructureStore> stores;
+    private final Projection projection;
+
+    public MergingLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures
+    ) {
+        this(index, structures, ForkJoinPool.commonPool(), new XrefTable(), HeapStructureStore::new, Projection.ALL);
+    }
+
+    /**
+     * @param pool where files are parsed
+     * @param xrefs maps (merged) pointers to ids, shared by all files
+     * @param stores creates stores into which lines are added
+     * @param projection determines which lines are kept
+     */
+    public MergingLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final ForkJoinPool pool,
+            final XrefTable xrefs,
+            final Function<XrefTable, WritableStructureStore> stores,
+            final Projection projection
+    ) {
+        Objects.requireNonNull(pool, "pool");
+        Objects.requireNonNull(xrefs, "xrefs");
+        Objects.requireNonNull(stores, "stores");
+        Objects.requireNonNull(projection, "projection");
+        this.index = index;
+        this.structures = structures;
+        this.pool = pool;
+        this.xrefs = xrefs;
+        this.stores = stores;
+        this.projection = projection;
+    }
+
+    private record Result(Map<String, Structure> index, Map<String, Collection<Structure>> structures) {}
+
+    /**
+     * @param aliasFile links records in different files, or null if there are no such links
+     */
+    public void load(List<File> files, Path aliasFile) throws IOException {
+        List<Map<String, String>> aliases = null != aliasFile
+                ? readAliases(aliasFile, files)
+                : Collections.nCopies(files.size(), Map.of());
+
+        List<Callable<Result>> tasks = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            final File file = files.get(i);
+            final XrefNamespace namespace = new XrefNamespace(namespaceOf(i), aliases.get(i));
+            tasks.add(() -> parse(file, namespace));
+        }
+
+        try {
+            // Merge in given order
+            int i = 0;
+            int duplicates = 0;
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                Result result = future.get();
+                boolean isFirst = i++ == 0;
+                for (Map.Entry<String, Collection<Structure>> entry : result.structures().entrySet()) {
+                    String tag = entry.getKey();
+                    if (!isFirst && (tag.equals(Tag.HEAD.name()) || tag.equals(Tag.TRLR.name()))) {
+                        continue;
+                    }
+                    Collection<Structure> merged = structures.computeIfAbsent(tag, k -> new ArrayList<>());
+                    for (Structure structure : entry.getValue()) {
+                        Optional<String> id = structure.getPointer();
+                        if (!isFirst && id.isPresent() && index.containsKey(id.get())) {
+                            // Aliased record, already loaded from another file
+                            duplicates++;
+                            continue;
+                        }
+                        merged.add(structure);
+                    }
+                }
+                result.index().forEach(index::putIfAbsent);
+            }
+            log.debug("Merged {} files, skipping {} aliased records", files.size(), duplicates);
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + files, ie);
+
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Failed to load " + files, cause);
+        }
+    }
+
+    private Result parse(File file, XrefNamespace namespace) throws IOException {
+        Map<String, Structure> fileIndex = new HashMap<>();
+        Map<String, Collection<Structure>> fileStructures = new HashMap<>();
+        LineHandler handler = new LineHandler(fileIndex, fileStructures, null, xrefs, stores, projection, namespace);
+        Loader loader = new Loader(handler);
+        loader.load(file);
+        return new Result(fileIndex, fileStructures);
+    }
+
+    /**
+     * Namespace of i:th file, where the first file has none (i.e. keeps its xrefs as is)
+     */
+    private static String namespaceOf(int i) {
+        return i == 0 ? null : String.valueOf(i + 1);
+    }
+
+    /**
+     * Reads alias file, determining for each file how its aliased xrefs are mapped.
+     * @return aliases for each file, in the same order as 'files'
+     */
+    static List<Map<String, String>> readAliases(Path aliasFile, List<File> files) throws IOException {
+        // Aliased xrefs, as "<file number> <xref>", are grouped using union-find
+        Map</* key */ String, /* parent key */ String> parents = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(aliasFile, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while (null != (line = reader.readLine())) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] sides = line.split("=");
+                if (sides.length != 2) {
+                    throw new IOException("Invalid alias at line " + lineNumber + " of " + aliasFile + ": " + line);
+                }
+                String a = find(parents, keyOf(sides[0], files, aliasFile, lineNumber));
+                String b = find(parents, keyOf(sides[1], files, aliasFile, lineNumber));
+                if (!a.equals(b)) {
+                    // The xref of the file given first represents the group
+                    if (compare(a, b) < 0) {
+                        parents.put(b, a);
+                    } else {
+                        parents.put(a, b);
+                    }
+                }
+            }
+        }
+
+        List<Map<String, String>> aliases = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            aliases.add(new HashMap<>());
+        }
+        for (String key : parents.keySet()) {
+            String root = find(parents, key);
+            if (!root.equals(key)) {
+                int space = root.indexOf(' ');
+                int rootFile = Integer.parseInt(root.substring(0, space));
+                String rootXref = root.substring(space + 1);
+                String merged = new XrefNamespace(namespaceOf(rootFile), Map.of()).apply(rootXref);
+
+                space = key.indexOf(' ');
+                aliases.get(Integer.parseInt(key.substring(0, space))).put(key.substring(space + 1), merged);
+            }
+        }
+        return aliases;
+    }
+
+    private static String keyOf(String side, List<File> files, Path aliasFile, int lineNumber) throws IOException {
+        String[] parts = side.trim().split("\\s+");
+        if (parts.length != 2 || !XrefTable.isPointer(parts[1], 0, parts[1].length())) {
+            throw new IOException("Invalid alias at line " + lineNumber + " of " + aliasFile + ": " + side.trim());
+        }
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            if (file.getName().equals(parts[0]) || file.getPath().equals(parts[0])) {
+                return i + " " + parts[1];
+            }
+        }
+        throw new IOException("Unknown file at line " + lineNumber + " of " + aliasFile + ": " + parts[0]);
+    }
+
+    private static String find(Map<String, String> parents, String key) {
+        String parent = parents.get(key);
+        if (null == parent) {
+            parents.put(key, key);
+            return key;
+        }
+        if (parent.equals(key)) {
+            return key;
+        }
+        String root = find(parents, parent);
+        parents.put(key, root);
+        return root;
+    }
+
+    private static int compare(String a, String b) {
+        int fileA = Integer.parseInt(a.substring(0, a.indexOf(' ')));
+        int fileB = Integer.parseInt(b.substring(0, b.indexOf(' ')));
+        return fileA != fileB ? Integer.compare(fileA, fileB) : a.compareTo(b);
+    }
+}
@@ -0,0 +1,217 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Loads a GEDCOM file in parallel.
+ * <p/>
+ * The file is memory mapped and split into chunks at level 0 record boundaries, i.e. at
+ * lines starting with "0 ". Each chunk is then parsed on a fork-join pool into its own
+ * index and structures, which are finally merged in file order. The outcome is the same as
+ * if the file was loaded using {@link Loader#load(File)}.
+ * <p/>
+ * As with {@link Loader}, the file is decoded according to its BOM or header (see {@link GedcomCharsets}).
+ * Compressed files, and files in a character set where lines can not be found without
+ * decoding (i.e. UTF-16), are loaded sequentially.
+ */
+public class ParallelLoader {
+    private static final Logger log = LoggerFactory.getLogger(ParallelLoader.class);
+
+    // Files smaller than this are not worth splitting
+    private static final long MIN_CHUNK_SIZE = 1L << 20; // 1 MiB
+
+    // Upper bound of chunk size, well below the 2 GiB limit of a mapped region
+    private static final long MAX_CHUNK_SIZE = 64L << 20; // 64 MiB
+
+    // Size of window used when searching for a record boundary
+    private static final int SCAN_WINDOW_SIZE = 64 * 1024;
+
+    private final Map</* id */ String, Structure> index;
+    private final Map</* tag */ String, Collection<Structure>> structures;
+    private final ForkJoinPool pool;
+    private final XrefTable xrefs;
+    private final Function<XrefTable, WritableStructureStore> stores;
+    private final Projection projection;
+
+    public ParallelLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures
+    ) {
+        this(index, structures, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final ForkJoinPool pool
+    ) {
+        this(index, structures, pool, new XrefTable(), HeapStructureStore::new);
+    }
+
+    public ParallelLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final ForkJoinPool pool,
+            final XrefTable xrefs,
+            final Function<XrefTable, WritableStructureStore> stores
+    ) {
+        this(index, structures, pool, xrefs, stores, Projection.ALL);
+    }
+
+    /**
+     * @param xrefs maps pointers to ids, shared by all chunks
+     * @param stores creates stores into which lines are added
+     * @param projection determines which lines are kept
+     */
+    public ParallelLoader(
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures,
+            final ForkJoinPool pool,
+            final XrefTable xrefs,
+            final Function<XrefTable, WritableStructureStore> stores,
+            final Projection projection
+    ) {
+        Objects.requireNonNull(pool, "pool");
+        Objects.requireNonNull(xrefs, "xrefs");
+        Objects.requireNonNull(stores, "stores");
+        Objects.requireNonNull(projection, "projection");
+        this.index = index;
+        this.structures = structures;
+        this.pool = pool;
+        this.xrefs = xrefs;
+        this.stores = stores;
+        this.projection = projection;
+    }
+
+    private record Chunk(long start, long end, boolean isFirst) {}
+
+    private record Result(Map<String, Structure> index, Map<String, Collection<Structure>> structures) {}
+
+    public void load(File file) throws IOException {
+        final Charset charset = GedcomCharsets.detect(file.toPath());
+        if (GedcomFiles.isCompressed(file.toPath()) || !GedcomCharsets.isAsciiCompatible(charset)) {
+            log.debug("Loading {} ({}) sequentially", file.getName(), charset.name());
+            LineHandler handler = new LineHandler(index, structures, null, xrefs, stores, projection);
+            new Loader(handler).load(file, charset);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<Chunk> chunks = split(channel);
+            log.debug("Loading {} in {} chunks", file.getName(), chunks.size());
+
+            List<Callable<Result>> tasks = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                tasks.add(() -> parse(channel, chunk, charset));
+            }
+
+            // Merge in file order
+            for (Future<Result> future : pool.invokeAll(tasks)) {
+                Result result = future.get();
+                index.putAll(result.index());
+                result.structures().forEach((tag, tagged) ->
+                        structures.computeIfAbsent(tag, k -> new ArrayList<>()).addAll(tagged));
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + file.getName(), ie);
+
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException ioe) {
+                throw ioe;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Failed to load " + file.getName(), cause);
+        }
+    }
+
+    /**
+     * Splits file into chunks, each starting at a level 0 record (except possibly the first one).
+     */
+    private List<Chunk> split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final long start = skipBOM(channel);
+
+        int parallelism = Math.max(1, pool.getParallelism());
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, size / (4L * parallelism)));
+
+        List<Chunk> chunks = new ArrayList<>();
+        long chunkStart = start;
+        while (chunkStart < size) {
+            long chunkEnd = (size - chunkStart <= chunkSize) ? size : findRecordStart(channel, chunkStart + chunkSize);
+            chunks.add(new Chunk(chunkStart, chunkEnd, chunks.isEmpty()));
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    private static long skipBOM(FileChannel channel) throws IOException {
+        int length = (int) Math.min(3L, channel.size());
+        if (length == 0) {
+            return 0L;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return Loader.bomLength(bytes, length);
+    }
+
+    /**
+     * Finds start of first level 0 record at or after 'from', i.e. position of '0' in
+     * "\n0 " (or "\r0 "), or end of file if there is no such record.
+     */
+    private static long findRecordStart(FileChannel channel, long from) throws IOException {
+        final long size = channel.size();
+
+        // Start one byte early so that we see the preceding line terminator
+        long windowStart = from - 1;
+        while (windowStart < size - 2) {
+            int windowSize = (int) Math.min(SCAN_WINDOW_SIZE, size - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            for (int i = 0; i + 2 < windowSize; i++) {
+                byte b = window.get(i);
+                if ((b == '\n' || b == '\r') && window.get(i + 1) == '0' && window.get(i + 2) == ' ') {
+                    return windowStart + i + 1;
+                }
+            }
+            // Overlap windows so we do not miss a boundary straddling two windows
+            windowStart += windowSize - 2;
+        }
+        return size;
+    }
+
+    private Result parse(FileChannel channel, Chunk chunk, Charset charset) throws IOException {
+        Map<String, Structure> chunkIndex = new HashMap<>();
+        Map<String, Collection<Structure>> chunkStructures = new HashMap<>();
+        LineHandler handler = new LineHandler(chunkIndex, chunkStructures, null, xrefs, stores, projection);
+        Loader loader = new Loader(handler);
+
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.end() - chunk.start());
+        CharBuffer chars = charset.decode(bytes);
+        loader.accept(chars, chunk.isFirst());
+        handler.finish();
+        return new Result(chunkIndex, chunkStructures);
+    }
+}
@@ -0,0 +1,255 @@
+package org.gautelis.gedcom2latex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Loads a GEDCOM file using two threads.
+ * <p/>
+ * A reader thread reads the file in large blocks, decodes them and splits them into lines,
+ * which are handed over in batches through a bounded ring of (reused) batches. Meanwhile,
+ * the calling thread feeds the lines to the {@link LineHandler}. Reading from disk (or network)
+ * and decoding thus overlaps with building the structures, which is otherwise done in lock-step
+ * by {@link Loader#load(File)}. The outcome is the same as if the file was loaded using
+ * {@link Loader#load(File)}.
+ * <p/>
+ * As with {@link Loader}, the file is decoded according to its BOM or header, see
+ * {@link GedcomCharsets}, and may be compressed (see {@link GedcomFiles}), in which case
+ * it is also decompressed by the reader thread.
+ */
+public class PipelinedLoader {
+    private static final Logger log = LoggerFactory.getLogger(PipelinedLoader.class);
+
+    private static final int BLOCK_SIZE = 1 << 20; // 1 MiB
+
+    public static final int DEFAULT_RING_SIZE = 8; // batches
+
+    /**
+     * A number of complete lines, i.e. chars[starts[i], ends[i]) for i in [0, count)
+     */
+    private static final class Batch {
+        private char[] chars = new char[BLOCK_SIZE];
+        private CharBuffer wrapped = CharBuffer.wrap(chars);
+        private int[] starts = new int[BLOCK_SIZE / 32];
+        private int[] ends = new int[BLOCK_SIZE / 32];
+        private int count = 0;
+
+        // Marks end of file (or failure to read it)
+        private boolean isLast = false;
+
+        private void set(CharBuffer source, int length) {
+            if (chars.length < length) {
+                chars = new char[length];
+                wrapped = CharBuffer.wrap(chars);
+            }
+            source.get(chars, 0, length);
+            count = 0;
+        }
+
+        private void addLine(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * count);
+                ends = Arrays.copyOf(ends, 2 * count);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+    }
+
+    private final LineHandler handler;
+    private final int ringSize;
+
+    public PipelinedLoader(final LineHandler handler) {
+        this(handler, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * @param ringSize max number of batches (of about 1 MiB each) read ahead of the handler
+     */
+    public PipelinedLoader(final LineHandler handler, final int ringSize) {
+        if (ringSize < 1) {
+            throw new IllegalArgumentException("Ring size must be positive: " + ringSize);
+        }
+        this.handler = handler;
+        this.ringSize = ringSize;
+    }
+
+    public void load(File file) throws IOException {
+        final Charset charset = GedcomCharsets.detect(file.toPath());
+        // Batches circulate between the two threads, from 'empty' to 'filled' and back again
+        final BlockingQueue<Batch> empty = new ArrayBlockingQueue<>(ringSize);
+        final BlockingQueue<Batch> filled = new ArrayBlockingQueue<>(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            empty.add(new Batch());
+        }
+
+        final IOException[] failure = { null };
+        Thread reader = new Thread(() -> {
+            try {
+                read(file, charset, empty, filled);
+            } catch (IOException ioe) {
+                failure[0] = ioe;
+            } catch (RuntimeException re) {
+                failure[0] = new IOException("Failed to read " + file.getName(), re);
+            } catch (InterruptedException ie) {
+                // Loading was abandoned
+                return;
+            }
+            try {
+                Batch last = empty.take();
+                last.count = 0;
+                last.isLast = true;
+                filled.put(last); // also publishes 'failure'
+            } catch (InterruptedException ignore) {
+            }
+        }, "gedcom-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try {
+            Loader loader = new Loader(handler);
+            boolean isFirstLine = true;
+            long lines = 0L;
+            while (true) {
+                Batch batch = filled.take();
+                if (batch.isLast) {
+                    break;
+                }
+                for (int i = 0; i < batch.count; i++) {
+                    if (isFirstLine) {
+                        // First line may contain UTF-8 BOM or ZWNBSP (Zero Width No-Break Space)
+                        String line = new String(batch.chars, batch.starts[i], batch.ends[i] - batch.starts[i]);
+                        loader.accept(Loader.trimBOM(line.trim()));
+                        isFirstLine = false;
+                    } else {
+                        loader.accept(batch.wrapped, batch.starts[i], batch.ends[i]);
+                    }
+                }
+                lines += batch.count;
+                empty.put(batch);
+            }
+            if (null != failure[0]) {
+                throw failure[0];
+            }
+            handler.finish();
+            log.debug("Loaded {} lines from {}", lines, file.getName());
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading " + file.getName());
+
+        } finally {
+            // In case the handler failed, so that the reader does not wait forever
+            reader.interrupt();
+        }
+    }
+
+    /**
+     * Reads file, decodes it and splits it into lines the way BufferedReader does,
+     * i.e. at '\n', '\r' or "\r\n".
+     */
+    private void read(File file, Charset charset, BlockingQueue<Batch> empty, BlockingQueue<Batch> filled) throws IOException, InterruptedException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        Path path = file.toPath();
+        try (ReadableByteChannel channel = GedcomFiles.isCompressed(path)
+                ? Channels.newChannel(GedcomFiles.open(path))
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = ByteBuffer.allocateDirect(BLOCK_SIZE);
+            CharBuffer chars = CharBuffer.allocate(2 * BLOCK_SIZE);
+
+            boolean isEndOfFile = false;
+            while (true) {
+                if (!isEndOfFile) {
+                    isEndOfFile = channel.read(bytes) < 0;
+                }
+                bytes.flip();
+                CoderResult result = decoder.decode(bytes, chars, isEndOfFile);
+                bytes.compact();
+                if (result.isOverflow()) {
+                    // A line longer than the buffer (unlikely, but not forbidden)
+                    chars = CharBuffer.allocate(2 * chars.capacity()).put(chars.flip());
+                    continue;
+                }
+                if (isEndOfFile) {
+                    decoder.flush(chars);
+                }
+                chars.flip();
+
+                // Hand over complete lines, keeping the rest for the next round
+                int length = chars.remaining();
+                int cut = lastLineEnd(chars, length, isEndOfFile);
+                if (cut > 0) {
+                    Batch batch = empty.take();
+                    batch.set(chars, cut);
+                    split(batch, cut, isEndOfFile);
+                    filled.put(batch);
+                }
+                chars.compact();
+
+                if (isEndOfFile) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines how many chars (from start) constitute complete lines.
+     */
+    private static int lastLineEnd(CharBuffer chars, int length, boolean isEndOfFile) {
+        if (isEndOfFile) {
+            return length;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            char c = chars.get(chars.position() + i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            if (c == '\r' && i + 1 < length) {
+                // "\r" at the very end may be followed by "\n" in the next round
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static void split(Batch batch, int length, boolean isEndOfFile) {
+        final char[] chars = batch.chars;
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c == '\n' || c == '\r') {
+                batch.addLine(lineStart, i);
+                if (c == '\r' && i + 1 < length && chars[i + 1] == '\n') {
+                    i++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (isEndOfFile && lineStart < length) {
+            batch.addLine(lineStart, length);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.Tag;
+
+import java.util.*;
+
+/**
+ * Determines which GEDCOM lines are kept when loading, given as tag paths from level 0,
+ * such as "NOTE", "INDI.OBJE" or "INDI.SOUR.DATA.TEXT".
+ * <p/>
+ * With an allow-list, a line is kept if its path is (a prefix of) an allowed path or lies
+ * below an allowed path, e.g. allowing "INDI.BIRT.DATE" keeps INDI, INDI.BIRT and
+ * INDI.BIRT.DATE (and anything below it), but not INDI.BIRT.PLAC. With a deny-list,
+ * a line is kept unless its path is, or lies below, a denied path.
+ * <p/>
+ * Lines that are not kept are discarded by the {@link LineHandler} (together with all
+ * lines below them) without ever being added to a store.
+ */
+public final class Projection {
+
+    /**
+     * A position in the tree of tag paths
+     */
+    static final class Node {
+        private int[] tags = new int[0];
+        private Node[] children = new Node[0];
+        private boolean isEnd = false; // end of a path
+
+        private Node find(int tag) {
+            for (int i = 0; i < tags.length; i++) {
+                if (tags[i] == tag) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        private Node add(int tag) {
+            Node child = find(tag);
+            if (null == child) {
+                child = new Node();
+                tags = Arrays.copyOf(tags, tags.length + 1);
+                tags[tags.length - 1] = tag;
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = child;
+            }
+            return child;
+        }
+    }
+
+    // Anything below is kept
+    private static final Node EVERYTHING = new Node();
+
+    /**
+     * Keeps all lines
+     */
+    public static final Projection ALL = new Projection(EVERYTHING, false, "");
+
+    private final Node root;
+    private final boolean isAllowList;
+    private final String description;
+
+    private Projection(Node root, boolean isAllowList, String description) {
+        this.root = root;
+        this.isAllowList = isAllowList;
+        this.description = description;
+    }
+
+    /**
+     * Keeps only lines on or below the given tag paths (and the lines leading up to them).
+     */
+    public static Projection allow(Collection<String> paths) {
+        return new Projection(compile(paths), true, describe("allow", paths));
+    }
+
+    /**
+     * Keeps all lines except those on or below the given tag paths.
+     */
+    public static Projection deny(Collection<String> paths) {
+        return new Projection(compile(paths), false, describe("deny", paths));
+    }
+
+    private static Node compile(Collection<String> paths) {
+        Node root = new Node();
+        for (String path : paths) {
+            Node node = root;
+            for (String tag : path.trim().split("\\.", -1)) {
+                if (tag.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid tag path: \"" + path + "\"");
+                }
+                node = node.add(Tag.intern(tag));
+            }
+            node.isEnd = true;
+        }
+        return root;
+    }
+
+    private static String describe(String kind, Collection<String> paths) {
+        return kind + paths.stream().map(String::trim).sorted().distinct().toList();
+    }
+
+    Node root() {
+        return root;
+    }
+
+    /**
+     * Determines whether a line with given tag, nested within a line at position 'parent', is kept.
+     * @return position of line, or null if line is not kept
+     */
+    Node child(Node parent, int tag) {
+        if (parent == EVERYTHING) {
+            return EVERYTHING;
+        }
+        Node child = parent.find(tag);
+        if (isAllowList) {
+            if (null == child) {
+                return null;
+            }
+            return child.isEnd ? EVERYTHING : child;
+        } else {
+            if (null == child) {
+                return EVERYTHING;
+            }
+            return child.isEnd ? null : child;
+        }
+    }
+
+    /**
+     * Canonical description, e.g. "allow[FAM.HUSB, INDI.NAME]", or empty for {@link #ALL}
+     */
+    @Override
+    public String toString() {
+        return description;
+    }
+}
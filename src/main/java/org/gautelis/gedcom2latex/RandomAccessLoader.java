@@ -0,0 +1,167 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.WritableStructureStore;
+import org.gautelis.gedcom2latex.model.Tag;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Loads individual records from a GEDCOM file, using a {@link RecordIndex} to read
+ * only the bytes of the requested records.
+ * <p/>
+ * This is useful when only a small part of a (large) GEDCOM file is needed, e.g. a single
+ * individual or the ancestors of an individual. As with {@link Loader}, the file is decoded
+ * according to its BOM or header (see {@link GedcomCharsets}), but UTF-16 is not supported.
+ * <p/>
+ * Records may be loaded from many threads at once, since each load reads the file (at given
+ * offsets) into buffers and stores of its own.
+ */
+public class RandomAccessLoader implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(RandomAccessLoader.class);
+
+    private final FileChannel channel;
+    private final RecordIndex recordIndex;
+    private final XrefTable xrefs;
+    private final Function<XrefTable, WritableStructureStore> stores;
+    private final Charset charset;
+
+    public RandomAccessLoader(Path gedcomFile, RecordIndex recordIndex) throws IOException {
+        this(gedcomFile, recordIndex, new XrefTable(), HeapStructureStore::forRecord);
+    }
+
+    /**
+     * @param recordIndex index of 'gedcomFile', see {@link RecordIndex#of(Path)}
+     * @param xrefs maps pointers to ids
+     * @param stores creates stores into which lines are added, one per record loaded,
+     *               e.g. {@link HeapStructureStore#forRecord(XrefTable)}
+     */
+    public RandomAccessLoader(
+            Path gedcomFile, RecordIndex recordIndex,
+            XrefTable xrefs, Function<XrefTable, WritableStructureStore> stores
+    ) throws IOException {
+        Objects.requireNonNull(recordIndex, "recordIndex");
+        Objects.requireNonNull(xrefs, "xrefs");
+        Objects.requireNonNull(stores, "stores");
+        if (!recordIndex.isCurrent(gedcomFile)) {
+            throw new IOException("Index is not up-to-date with " + gedcomFile);
+        }
+        if (GedcomFiles.isCompressed(gedcomFile)) {
+            throw new IOException("Random access is not supported for compressed file " + gedcomFile);
+        }
+        this.charset = GedcomCharsets.detect(gedcomFile);
+        if (!GedcomCharsets.isAsciiCompatible(charset)) {
+            throw new IOException("Random access is not supported for " + charset.name() + " encoded file " + gedcomFile);
+        }
+        this.channel = FileChannel.open(gedcomFile, StandardOpenOption.READ);
+        this.recordIndex = recordIndex;
+        this.xrefs = xrefs;
+        this.stores = stores;
+    }
+
+    public RecordIndex getRecordIndex() {
+        return recordIndex;
+    }
+
+    /**
+     * Loads record with given ID (pointer), e.g. "@I1@"
+     */
+    public Optional<Structure> load(String id) throws IOException {
+        int record = recordIndex.find(id);
+        if (record == RecordIndex.NONE) {
+            return Optional.empty();
+        }
+        return Optional.of(load(new int[] { record }).get(0));
+    }
+
+    /**
+     * Loads records (given as record numbers in the index), reading them in file order.
+     * @return loaded records, in the same order as 'records'
+     */
+    public List<Structure> load(int[] records) throws IOException {
+        int[] distinct = Arrays.stream(records).distinct().sorted().toArray();
+
+        // Records are handed to consumer as they are completed, i.e. in file order
+        Map</* record */ Integer, Structure> loaded = new HashMap<>();
+        Iterator<Integer> pending = Arrays.stream(distinct).iterator();
+        LineHandler handler = new LineHandler(null, null, structure -> loaded.put(pending.next(), structure), xrefs, stores);
+        Loader loader = new Loader(handler);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int record : distinct) {
+            int length = recordIndex.getLength(record);
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+            }
+            buffer.clear().limit(length);
+
+            long offset = recordIndex.getOffset(record);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file while reading record at offset " + offset);
+                }
+            }
+            buffer.flip();
+            loader.accept(charset.decode(buffer), false);
+        }
+        handler.finish();
+
+        List<Structure> result = new ArrayList<>(records.length);
+        for (int record : records) {
+            result.add(loaded.get(record));
+        }
+        return result;
+    }
+
+    /**
+     * Loads individual with given ID, and all its ancestors, following child-to-family
+     * links (FAMC) to the families (FAM) and their parents (HUSB, WIFE). Records are
+     * loaded one generation at a time.
+     * @return loaded INDI and FAM records, indexed on ID
+     */
+    public Map</* id */ String, Structure> loadAncestors(String id) throws IOException {
+        Map<String, Structure> loaded = new LinkedHashMap<>();
+        Set<String> generation = Set.of(id);
+        while (!generation.isEmpty()) {
+            int[] records = generation.stream()
+                    .filter(_id -> !loaded.containsKey(_id))
+                    .mapToInt(recordIndex::find)
+                    .filter(record -> record != RecordIndex.NONE)
+                    .toArray();
+
+            Set<String> next = new LinkedHashSet<>();
+            for (Structure structure : load(records)) {
+                structure.getPointer().ifPresent(_id -> loaded.put(_id, structure));
+
+                if (structure.getTagCode() == Tag.INDI.code()) {
+                    for (Structure famc : structure.getNestedStructures(Tag.FAMC)) {
+                        famc.getData().ifPresent(next::add);
+                    }
+                } else if (structure.getTagCode() == Tag.FAM.code()) {
+                    structure.getNestedData(Tag.HUSB).ifPresent(next::add);
+                    structure.getNestedData(Tag.WIFE).ifPresent(next::add);
+                }
+            }
+            generation = next;
+        }
+        log.debug("Loaded {} records for ancestors of {}", loaded.size(), id);
+        return loaded;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
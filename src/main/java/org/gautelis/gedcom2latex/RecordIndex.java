@@ -0,0 +1,327 @@
+package org.gautelis.gedcom2latex;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Byte offset and length of every level 0 record (HEAD, INDI, FAM, SOUR, ...) in a GEDCOM file,
+ * so that individual records may be loaded without loading the whole file (see {@link RandomAccessLoader}).
+ * <p/>
+ * Building an index needs a single sequential pass over the file, during which only the
+ * first line of each record is tokenized. The index may be saved next to the GEDCOM file
+ * (see {@link #pathOf(Path)}), keyed on size and modification time of the GEDCOM file, if
+ * asked to (see {@link #of(Path, boolean)}).
+ * <p/>
+ * Sidecar file layout:
+ * <pre>
+ *   magic, version, size and modification time of GEDCOM file, number of records
+ *   for each record: offset (long), length (int), tag (UTF), pointer (UTF, empty if none)
+ * </pre>
+ */
+public final class RecordIndex {
+    private static final Logger log = LoggerFactory.getLogger(RecordIndex.class);
+
+    public static final int NONE = -1;
+
+    private static final int MAGIC = 0x47324c49; // "G2LI"
+    private static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final long fileSize;
+    private final long lastModified;
+
+    private int size = 0;
+    private long[] offsets = new long[1024];
+    private int[] lengths = new int[1024];
+    private String[] tags = new String[1024];
+    private String[] pointers = new String[1024];
+
+    private final Map</* id */ String, Integer> records = new HashMap<>();
+
+    private RecordIndex(long fileSize, long lastModified) {
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Location of index for a GEDCOM file, e.g. "family.ged.index" for "family.ged"
+     */
+    public static Path pathOf(Path gedcomFile) {
+        return gedcomFile.resolveSibling(gedcomFile.getFileName() + ".index");
+    }
+
+    /**
+     * Gets index of GEDCOM file, without saving it (or reading a saved index).
+     */
+    public static RecordIndex of(Path gedcomFile) throws IOException {
+        return of(gedcomFile, false);
+    }
+
+    /**
+     * Gets index of GEDCOM file. If 'keep', the index is read from its sidecar file if that
+     * is up-to-date, or else built and saved as sidecar file (if possible). Otherwise, the
+     * index is built and nothing is written next to the GEDCOM file.
+     */
+    public static RecordIndex of(Path gedcomFile, boolean keep) throws IOException {
+        if (!keep) {
+            return build(gedcomFile);
+        }
+        Optional<RecordIndex> saved = read(gedcomFile);
+        if (saved.isPresent()) {
+            return saved.get();
+        }
+
+        RecordIndex index = build(gedcomFile);
+        try {
+            index.write(gedcomFile);
+        } catch (IOException ioe) {
+            log.warn("Could not save index of {}: {}", gedcomFile, ioe.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Builds index by scanning GEDCOM file.
+     */
+    public static RecordIndex build(Path gedcomFile) throws IOException {
+        if (GedcomFiles.isCompressed(gedcomFile)) {
+            throw new IOException("Can not index compressed file " + gedcomFile);
+        }
+        BasicFileAttributes attributes = Files.readAttributes(gedcomFile, BasicFileAttributes.class);
+        RecordIndex index = new RecordIndex(attributes.size(), attributes.lastModifiedTime().toMillis());
+
+        Scanner scanner = new Scanner(index);
+        try (InputStream in = Files.newInputStream(gedcomFile)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int length = in.readNBytes(buffer, 0, buffer.length);
+            int i = Loader.bomLength(buffer, length);
+
+            long position = 0L; // of start of buffer
+            while (length > 0) {
+                for (; i < length; i++) {
+                    scanner.accept(buffer[i], position + i);
+                }
+                position += length;
+                length = in.readNBytes(buffer, 0, buffer.length);
+                i = 0;
+            }
+            scanner.finish(position);
+        }
+        log.debug("Indexed {} records in {}", index.size(), gedcomFile);
+        return index;
+    }
+
+    /**
+     * Finds level 0 records, byte by byte. Only lines starting with '0' are collected and tokenized.
+     */
+    private static final class Scanner {
+        private final RecordIndex index;
+        private final LineTokenizer tokenizer = new LineTokenizer();
+
+        private boolean isLineStart = true;
+        private byte[] line = new byte[256]; // first line of a (possible) record
+        private int lineLength = NONE; // NONE if not collecting a line
+        private long lineStart = 0L;
+
+        private long recordStart = NONE;
+        private String tag = null;
+        private String pointer = null;
+
+        private Scanner(RecordIndex index) {
+            this.index = index;
+        }
+
+        private void accept(byte b, long position) throws IOException {
+            boolean isLineEnd = b == '\n' || b == '\r';
+            if (lineLength != NONE) {
+                if (isLineEnd) {
+                    endLine();
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, 2 * lineLength);
+                    }
+                    line[lineLength++] = b;
+                }
+            } else if (isLineStart && b == '0') {
+                // Possibly a level 0 record
+                lineStart = position;
+                line[0] = b;
+                lineLength = 1;
+            }
+            isLineStart = isLineEnd;
+        }
+
+        private void endLine() throws IOException {
+            String first = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            if (tokenizer.tokenize(first) && tokenizer.getLevel() == 0L) {
+                if (recordStart != NONE) {
+                    index.add(recordStart, lineStart - recordStart, tag, pointer);
+                }
+                recordStart = lineStart;
+                tag = tokenizer.getTag();
+                pointer = tokenizer.getPointer();
+            }
+            lineLength = NONE;
+        }
+
+        private void finish(long size) throws IOException {
+            if (lineLength != NONE) {
+                endLine();
+            }
+            if (recordStart != NONE) {
+                index.add(recordStart, size - recordStart, tag, pointer);
+            }
+        }
+    }
+
+    private void add(long offset, long length, String tag, String pointer) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Record at offset " + offset + " is too large: " + length + " bytes");
+        }
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * size);
+            lengths = Arrays.copyOf(lengths, 2 * size);
+            tags = Arrays.copyOf(tags, 2 * size);
+            pointers = Arrays.copyOf(pointers, 2 * size);
+        }
+        offsets[size] = offset;
+        lengths[size] = (int) length;
+        tags[size] = tag;
+        pointers[size] = pointer;
+        if (null != pointer) {
+            records.put(pointer, size);
+        }
+        size++;
+    }
+
+    /**
+     * Reads index from its sidecar file, provided it exists and is up-to-date.
+     */
+    public static Optional<RecordIndex> read(Path gedcomFile) throws IOException {
+        Path file = pathOf(gedcomFile);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        BasicFileAttributes attributes = Files.readAttributes(gedcomFile, BasicFileAttributes.class);
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION
+                    || in.readLong() != attributes.size() || in.readLong() != attributes.lastModifiedTime().toMillis()) {
+                log.debug("Index {} is stale", file);
+                return Optional.empty();
+            }
+            RecordIndex index = new RecordIndex(attributes.size(), attributes.lastModifiedTime().toMillis());
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long offset = in.readLong();
+                int length = in.readInt();
+                String tag = in.readUTF();
+                String pointer = in.readUTF();
+                index.add(offset, length, tag, pointer.isEmpty() ? null : pointer);
+            }
+            return Optional.of(index);
+
+        } catch (EOFException eofe) {
+            log.debug("Index {} is truncated", file);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves index as sidecar file of GEDCOM file.
+     */
+    public void write(Path gedcomFile) throws IOException {
+        Path file = pathOf(gedcomFile).toAbsolutePath();
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(fileSize);
+                out.writeLong(lastModified);
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(offsets[i]);
+                    out.writeInt(lengths[i]);
+                    out.writeUTF(tags[i]);
+                    out.writeUTF(null != pointers[i] ? pointers[i] : "");
+                }
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds record with given ID (pointer), e.g. "@I1@"
+     * @return record number, or NONE if there is no such record
+     */
+    public int find(String id) {
+        Integer record = records.get(id);
+        return null != record ? record : NONE;
+    }
+
+    /**
+     * Finds all records with given tag, e.g. "INDI", in file order
+     */
+    public int[] findAll(String tag) {
+        int[] found = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (tags[i].equals(tag)) {
+                found[count++] = i;
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    public long getOffset(int record) {
+        return offsets[record];
+    }
+
+    public int getLength(int record) {
+        return lengths[record];
+    }
+
+    public String getTag(int record) {
+        return tags[record];
+    }
+
+    /**
+     * @return pointer of record, or null for records without pointer (such as HEAD and TRLR)
+     */
+    public String getPointer(int record) {
+        return pointers[record];
+    }
+
+    /**
+     * Checks whether index was built from the current contents of GEDCOM file
+     */
+    public boolean isCurrent(Path gedcomFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(gedcomFile, BasicFileAttributes.class);
+        return attributes.size() == fileSize && attributes.lastModifiedTime().toMillis() == lastModified;
+    }
+}
@@ -0,0 +1,226 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.jfr.PhaseEvent;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what is done during a run and times each phase of it (loading, analyzing, indexing,
+ * producing output), so that the run may be summarized, see {@link #report(PrintStream)}.
+ * Phases are also recorded as JFR events (see {@link PhaseEvent}).
+ * <p/>
+ * Counters may be updated by many threads at once, e.g. when a file is loaded in parallel.
+ */
+public final class Statistics {
+
+    /**
+     * Statistics of this run
+     */
+    public static final Statistics SHARED = new Statistics();
+
+    public static final String LOAD = "load";
+    public static final String ANALYZE = "analyze";
+    public static final String INDEX = "index";
+    public static final String OUTPUT = "output";
+
+    /**
+     * A phase that is timed until closed, e.g.
+     * <pre>
+     * Statistics.Phase phase = Statistics.SHARED.phase(Statistics.LOAD);
+     * try {
+     *     ...
+     * } finally {
+     *     phase.close();
+     * }
+     * </pre>
+     */
+    public final class Phase implements AutoCloseable {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final PhaseEvent event = new PhaseEvent();
+
+        private Phase(String name) {
+            this.name = name;
+            event.begin();
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            synchronized (phases) {
+                phases.merge(name, elapsed, Long::sum);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.commit();
+            }
+        }
+    }
+
+    // Wall time of each phase, in nanoseconds (in order of first appearance)
+    private final Map</* phase */ String, Long> phases = new LinkedHashMap<>();
+
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder recordLoads = new LongAdder();
+    private final LongAdder individuals = new LongAdder();
+    private final LongAdder links = new LongAdder();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder templates = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder downloads = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder downloadTime = new LongAdder(); // nanoseconds
+
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * @param lines number of lines parsed, including continuation lines and discarded lines
+     * @param records number of (level 0) records kept
+     * @param nodes number of structures kept, i.e. added to stores
+     */
+    public void parsed(long lines, long records, long nodes) {
+        this.lines.add(lines);
+        this.records.add(records);
+        this.nodes.add(nodes);
+    }
+
+    /**
+     * @param loads number of records parsed on demand (see {@link LazyLoader#getLoads()}), including
+     *              records parsed again after being evicted
+     */
+    public void loadedLazily(long loads) {
+        recordLoads.add(loads);
+    }
+
+    /**
+     * @param individuals number of individuals
+     * @param links number of links from children to parents
+     */
+    public void linked(long individuals, long links) {
+        this.individuals.add(individuals);
+        this.links.add(links);
+    }
+
+    /**
+     * @param events number of (dated) events indexed
+     */
+    public void indexed(long events) {
+        this.events.add(events);
+    }
+
+    public void rendered() {
+        templates.increment();
+    }
+
+    public void written(long bytes) {
+        bytesWritten.add(bytes);
+    }
+
+    /**
+     * @param elapsed time taken, in nanoseconds
+     */
+    public void downloaded(long bytes, long elapsed) {
+        downloads.increment();
+        bytesDownloaded.add(bytes);
+        downloadTime.add(elapsed);
+    }
+
+    /**
+     * Wall time of phase, in milliseconds (or 0 if phase has not been timed)
+     */
+    public long getMillis(String phase) {
+        synchronized (phases) {
+            return TimeUnit.NANOSECONDS.toMillis(phases.getOrDefault(phase, 0L));
+        }
+    }
+
+    public long getLines() {
+        return lines.sum();
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    public long getRecordLoads() {
+        return recordLoads.sum();
+    }
+
+    public long getIndividuals() {
+        return individuals.sum();
+    }
+
+    public long getLinks() {
+        return links.sum();
+    }
+
+    public long getEvents() {
+        return events.sum();
+    }
+
+    public long getTemplates() {
+        return templates.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public long getDownloads() {
+        return downloads.sum();
+    }
+
+    public long getBytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public void report(PrintStream out) {
+        out.println("--- STATISTICS ---");
+        synchronized (phases) {
+            long total = 0L;
+            for (Map.Entry<String, Long> entry : phases.entrySet()) {
+                out.printf("%-10s %8d ms%n", entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+                total += entry.getValue();
+            }
+            out.printf("%-10s %8d ms%n", "total", TimeUnit.NANOSECONDS.toMillis(total));
+        }
+
+        long loadTime = getMillis(LOAD);
+        out.printf("Parsed %d lines (%s lines/s) and %d records (%s records/s), keeping %d structures%n",
+                getLines(), perSecond(getLines(), loadTime), getRecords(), perSecond(getRecords(), loadTime), getNodes());
+        if (getRecordLoads() > 0) {
+            out.printf("Parsed records %d times on demand%n", getRecordLoads());
+        }
+        out.printf("Linked %d individuals (%d links to parents)%n", getIndividuals(), getLinks());
+        if (getEvents() > 0) {
+            out.printf("Indexed %d events%n", getEvents());
+        }
+        out.printf("Rendered %d templates, writing %d bytes%n", getTemplates(), getBytesWritten());
+
+        long _downloads = getDownloads();
+        if (_downloads > 0) {
+            long bytes = getBytesDownloaded();
+            long millis = TimeUnit.NANOSECONDS.toMillis(downloadTime.sum());
+            out.printf("Downloaded %d files, %d bytes in %d ms (%s KiB/s)%n",
+                    _downloads, bytes, millis, perSecond(bytes / 1024, millis));
+        }
+        out.flush();
+    }
+
+    private static String perSecond(long count, long millis) {
+        return millis > 0 ? String.valueOf(1000L * count / millis) : "-";
+    }
+}
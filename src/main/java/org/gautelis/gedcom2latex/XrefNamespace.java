@@ -0,0 +1,51 @@
+package org.gautelis.gedcom2latex;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Maps xrefs (pointers) of one GEDCOM file into the xref namespace of a merge of several files.
+ * <p/>
+ * Unless an xref is aliased, i.e. explicitly mapped to an xref of another file, it is prefixed
+ * with the namespace of the file, e.g. "@I1@" becomes "@2:I1@" in namespace "2".
+ * <p/>
+ * Since ':' may occur in an xref, any ':' in an xref is escaped as "::", in all files (also those
+ * without a namespace), e.g. "@2:I1@" becomes "@2::I1@" and "@A:B@" becomes "@2:A::B@" in namespace "2".
+ * Hence the namespace is followed by an odd number of ':', whereas the leading digits of an xref are
+ * followed by an even number of ':' (if any), so xrefs of different files never collide.
+ */
+public final class XrefNamespace implements UnaryOperator<String> {
+
+    private final String prefix;
+    private final Map</* xref */ String, /* merged xref */ String> aliases;
+
+    /**
+     * @param namespace namespace of file (digits only), or null if xrefs are kept as is (except aliases and escaping)
+     * @param aliases xrefs of file that are mapped to (already merged) xrefs of other files
+     */
+    public XrefNamespace(String namespace, Map<String, String> aliases) {
+        Objects.requireNonNull(aliases, "aliases");
+        this.prefix = null != namespace ? "@" + namespace + ":" : null;
+        this.aliases = aliases;
+    }
+
+    /**
+     * @param xref an xref, e.g. "@I1@"
+     * @return merged xref
+     */
+    @Override
+    public String apply(String xref) {
+        String alias = aliases.get(xref);
+        if (null != alias) {
+            return alias;
+        }
+        if (xref.indexOf(':') >= 0) {
+            xref = xref.replace(":", "::");
+        }
+        if (null == prefix) {
+            return xref;
+        }
+        return prefix + xref.substring(1);
+    }
+}
@@ -0,0 +1,30 @@
+package org.gautelis.gedcom2latex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A download of a (media) file referenced from GEDCOM.
+ */
+@Name("org.gautelis.gedcom2latex.Download")
+@Label("Download")
+@Category({ "GEDCOM", "IO" })
+@Description("A download of a file referenced from GEDCOM")
+@StackTrace(false)
+public class DownloadEvent extends Event {
+    @Label("URI")
+    public String uri;
+
+    @Label("Status")
+    @Description("HTTP status code, or 0 if request failed")
+    public int status;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
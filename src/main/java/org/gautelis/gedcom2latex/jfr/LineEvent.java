@@ -0,0 +1,43 @@
+package org.gautelis.gedcom2latex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A GEDCOM line, as handled by the line handler.
+ * <p/>
+ * There is one event per line, so this event is disabled by default and has to be enabled
+ * explicitly in the recording settings, e.g.
+ * <pre>
+ *   java -XX:StartFlightRecording:filename=parse.jfr,+org.gautelis.gedcom2latex.Line#enabled=true ...
+ * </pre>
+ */
+@Name("org.gautelis.gedcom2latex.Line")
+@Label("GEDCOM Line")
+@Category({ "GEDCOM", "Parsing" })
+@Description("A parsed GEDCOM line")
+@Enabled(false)
+@StackTrace(false)
+public class LineEvent extends Event {
+    @Label("Level")
+    public int level;
+
+    @Label("Tag")
+    public String tag;
+
+    @Label("Pointer")
+    public String pointer;
+
+    @Label("Data Length")
+    @Description("Length of (untrimmed) data, in chars")
+    public int dataLength;
+
+    @Label("Kept")
+    @Description("Whether line was kept (or discarded by projection)")
+    public boolean kept;
+}
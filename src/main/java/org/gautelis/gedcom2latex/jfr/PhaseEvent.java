@@ -0,0 +1,21 @@
+package org.gautelis.gedcom2latex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of a run, i.e. loading GEDCOM file(s), analyzing them or producing output.
+ */
+@Name("org.gautelis.gedcom2latex.Phase")
+@Label("Phase")
+@Category({ "GEDCOM" })
+@Description("A phase of a run, e.g. loading, analyzing or producing output")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+}
@@ -0,0 +1,38 @@
+package org.gautelis.gedcom2latex.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A level 0 GEDCOM record (INDI, FAM, SOUR, ...), from its first line until it is complete.
+ */
+@Name("org.gautelis.gedcom2latex.Record")
+@Label("GEDCOM Record")
+@Category({ "GEDCOM", "Parsing" })
+@Description("A parsed GEDCOM record, including its nested structures")
+@StackTrace(false)
+public class RecordEvent extends Event {
+    private static final EventType TYPE = EventType.getEventType(RecordEvent.class);
+
+    @Label("Tag")
+    public String tag;
+
+    @Label("Pointer")
+    public String pointer;
+
+    @Label("Lines")
+    @Description("Number of lines, including continuation lines and discarded lines")
+    public int lines;
+
+    /**
+     * Determines whether events are recorded, i.e. whether it is worth creating events at all
+     */
+    public static boolean isRecorded() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,35 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Optional;
+
+/**
+ * An event, i.e. a record with a date and a place (e.g. BIRT, CHR, DEAT, BURI, MARR)
+ */
+public interface Event extends Record {
+
+    /**
+     * Marks a date value that is not yet parsed, which is never a packed date
+     */
+    long UNPARSED = -1L;
+
+    Tag getTag();
+
+    Optional<String> getDate();
+
+    Optional<String> getPlace();
+
+    /**
+     * Id of place in {@link #getPlaces()}, or {@link PlaceRegistry#NONE} if event has no place
+     */
+    int getPlaceId();
+
+    /**
+     * Registry of places of the load this event belongs to, see {@link XrefTable#getPlaces()}
+     */
+    PlaceRegistry getPlaces();
+
+    /**
+     * Date, packed as described in {@link GedcomDate}, or {@link GedcomDate#NONE} if event has no date
+     */
+    long getDateValue();
+}
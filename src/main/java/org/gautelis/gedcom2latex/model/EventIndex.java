@@ -0,0 +1,386 @@
+package org.gautelis.gedcom2latex.model;
+
+import org.gautelis.gedcom2latex.model.gedcom.FAM;
+import org.gautelis.gedcom2latex.model.gedcom.MARR;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Chronological index of all (dated) events, i.e. births, baptisms, deaths and burials of
+ * individuals and marriages of families, as well as of the lifespans of individuals.
+ * <p/>
+ * Events are ordered by their packed date (see {@link GedcomDate}), so that events in a period,
+ * e.g. "all events between 1750 and 1800 in a parish", or individuals alive at some time, e.g.
+ * "who was alive in 1801", are found without scanning all individuals:
+ * <pre>
+ * EventIndex index = EventIndex.build(individuals, Structure.getFAMs(structures), xrefs.getPlaces());
+ * List&lt;EventIndex.Entry&gt; events = index.between(1750, 1800, index.inPlace("Alstahaug"));
+ * List&lt;Individual&gt; alive = index.aliveIn(1801);
+ * List&lt;EventIndex.Entry&gt; nordland = index.in("Nordland");
+ * </pre>
+ * Events are also indexed by place (see {@link PlaceRegistry}), so that the events in a place,
+ * including the places within it, are looked up rather than searched for.
+ * <p/>
+ * An event is taken to span from the start to the end of its date (e.g. all of 1850 for "1850",
+ * or 1750 through 1760 for "BET 1750 AND 1760"), disregarding qualifiers, so that "BEF 1850" is
+ * taken to be in 1850.
+ * <p/>
+ * An individual is taken to live from the earliest birth or baptism to the latest death or burial.
+ * Individuals with only one end of their life dated are taken to have lived at most {@link #MAX_AGE}
+ * years, whereas individuals without any of these dated are not indexed.
+ * <p/>
+ * Intervals are kept ordered by start, along with the running maximum of their ends, so that
+ * the intervals overlapping a period are found using two binary searches and a scan over those
+ * intervals that start before the period ends and have not all ended before it starts.
+ */
+public final class EventIndex {
+
+    /**
+     * Tag paths (from level 0) used when building the index
+     */
+    public static final List<String> TAG_PATHS = List.of(
+            "INDI.BIRT.DATE", "INDI.BIRT.PLAC",
+            "INDI.CHR.DATE", "INDI.CHR.PLAC",
+            "INDI.DEAT.DATE", "INDI.DEAT.PLAC",
+            "INDI.BURI.DATE", "INDI.BURI.PLAC",
+            "FAM.HUSB", "FAM.WIFE", "FAM.MARR.DATE", "FAM.MARR.PLAC"
+    );
+
+    /**
+     * Age assumed when only one end of a life is dated
+     */
+    public static final int MAX_AGE = 110;
+
+    /**
+     * An event of an individual or, for marriages, of a couple
+     * @param event the event
+     * @param individual the individual (the husband, if any, for marriages)
+     * @param spouse the other spouse for marriages, or null
+     */
+    public record Entry(Event event, Individual individual, Individual spouse) {
+        public long date() {
+            return event.getDateValue();
+        }
+
+        public Tag tag() {
+            return event.getTag();
+        }
+    }
+
+    private record Lifespan(Individual individual, int start, int end) {}
+
+    // Events, ordered by date
+    private final Entry[] events;
+    private final Intervals eventIntervals;
+
+    // Events in each place (including places within it) by place id, as positions in 'events'
+    private final PlaceRegistry places;
+    private final int[][] byPlace;
+
+    // Individuals, ordered by start of life
+    private final Individual[] lives;
+    private final Intervals lifeIntervals;
+
+    private EventIndex(Entry[] events, Lifespan[] lifespans, PlaceRegistry places) {
+        this.events = events;
+        int[] starts = new int[events.length];
+        int[] ends = new int[events.length];
+        for (int i = 0; i < events.length; i++) {
+            long date = events[i].date();
+            starts[i] = GedcomDate.startKey(date);
+            ends[i] = GedcomDate.endKey(date);
+        }
+        eventIntervals = new Intervals(starts, ends);
+        this.places = places;
+        byPlace = indexPlaces(events, places);
+
+        lives = new Individual[lifespans.length];
+        starts = new int[lifespans.length];
+        ends = new int[lifespans.length];
+        for (int i = 0; i < lifespans.length; i++) {
+            lives[i] = lifespans[i].individual();
+            starts[i] = lifespans[i].start();
+            ends[i] = lifespans[i].end();
+        }
+        lifeIntervals = new Intervals(starts, ends);
+    }
+
+    private static int[][] indexPlaces(Entry[] events, PlaceRegistry places) {
+        int[] counts = new int[places.size()];
+        for (Entry entry : events) {
+            for (PlaceRegistry.Place place = places.get(entry.event().getPlaceId()); place.depth > 0; place = place.parent) {
+                counts[place.id]++;
+            }
+        }
+        int[][] byPlace = new int[counts.length][];
+        for (int id = 0; id < counts.length; id++) {
+            byPlace[id] = new int[counts[id]];
+            counts[id] = 0;
+        }
+        for (int i = 0; i < events.length; i++) {
+            for (PlaceRegistry.Place place = places.get(events[i].event().getPlaceId()); place.depth > 0; place = place.parent) {
+                byPlace[place.id][counts[place.id]++] = i;
+            }
+        }
+        return byPlace;
+    }
+
+    /**
+     * Builds index in one parallel pass over individuals and families
+     * @param individuals individuals by id, see Application.analyze()
+     * @param families families, whose husbands and wives are found among 'individuals'
+     * @param places where places of events are registered, see {@link XrefTable#getPlaces()}
+     */
+    public static EventIndex build(
+            final Map</* id */ String, Individual> individuals,
+            final Collection<FAM> families,
+            final PlaceRegistry places
+    ) {
+        Builder builder = individuals.values().parallelStream()
+                .collect(Builder::new, Builder::add, Builder::addAll);
+        builder.addAll(families.parallelStream()
+                .collect(Builder::new, (b, family) -> b.add(family, individuals), Builder::addAll));
+
+        Entry[] events = builder.events.toArray(new Entry[0]);
+        Arrays.parallelSort(events, Comparator.comparingLong(Entry::date));
+
+        Lifespan[] lifespans = builder.lifespans.toArray(new Lifespan[0]);
+        Arrays.parallelSort(lifespans, Comparator.comparingInt(Lifespan::start));
+
+        return new EventIndex(events, lifespans, places);
+    }
+
+    /**
+     * Number of (dated) events
+     */
+    public int size() {
+        return events.length;
+    }
+
+    /**
+     * All (dated) events, in chronological order
+     */
+    public List<Entry> getEvents() {
+        return Collections.unmodifiableList(Arrays.asList(events));
+    }
+
+    /**
+     * Events in years [fromYear, toYear], in chronological order
+     */
+    public List<Entry> between(int fromYear, int toYear) {
+        return between(fromYear, toYear, entry -> true);
+    }
+
+    /**
+     * Events in years [fromYear, toYear] that are accepted by filter, in chronological order
+     */
+    public List<Entry> between(int fromYear, int toYear, Predicate<Entry> filter) {
+        List<Entry> found = new ArrayList<>();
+        eventIntervals.overlapping(firstKeyOf(fromYear), lastKeyOf(toYear), i -> {
+            if (filter.test(events[i])) {
+                found.add(events[i]);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Events in place, including places within it, in chronological order
+     */
+    public List<Entry> in(PlaceRegistry.Place place) {
+        int[] positions = place.id < byPlace.length ? byPlace[place.id] : new int[0];
+        List<Entry> found = new ArrayList<>(positions.length);
+        for (int i : positions) {
+            found.add(events[i]);
+        }
+        return found;
+    }
+
+    /**
+     * Events in all places named 'name' (ignoring case, see {@link PlaceRegistry#find(String)}),
+     * including places within them, in chronological order, e.g. everyone born in Nordland
+     * <pre>
+     * index.in("Nordland").stream().filter(entry -&gt; entry.tag() == Tag.BIRT).map(EventIndex.Entry::individual)
+     * </pre>
+     */
+    public List<Entry> in(String name) {
+        Collection<PlaceRegistry.Place> found = places.find(name);
+        if (found.size() == 1) {
+            return in(found.iterator().next());
+        }
+        return Arrays.stream(positionsIn(found)).mapToObj(i -> events[i]).toList();
+    }
+
+    private int[] positionsIn(Collection<PlaceRegistry.Place> found) {
+        return found.stream()
+                .filter(place -> place.id < byPlace.length)
+                .flatMapToInt(place -> Arrays.stream(byPlace[place.id]))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    /**
+     * Individuals alive (at some time) during year, ordered by start of life
+     */
+    public List<Individual> aliveIn(int year) {
+        return aliveBetween(year, year);
+    }
+
+    /**
+     * Individuals alive (at some time) during years [fromYear, toYear], ordered by start of life
+     */
+    public List<Individual> aliveBetween(int fromYear, int toYear) {
+        List<Individual> found = new ArrayList<>();
+        lifeIntervals.overlapping(firstKeyOf(fromYear), lastKeyOf(toYear), i -> found.add(lives[i]));
+        return found;
+    }
+
+    /**
+     * Accepts events in (or within) any place named 'name', ignoring case, e.g. "Alstahaug"
+     * or "Nordland" for "Alstahaug, Nordland, Norge".
+     */
+    public Predicate<Entry> inPlace(String name) {
+        final Collection<PlaceRegistry.Place> found = places.find(name);
+        return entry -> {
+            PlaceRegistry.Place place = places.get(entry.event().getPlaceId());
+            for (PlaceRegistry.Place _place : found) {
+                if (place.isWithin(_place)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static int firstKeyOf(int year) {
+        return GedcomDate.key(year, 0, 0);
+    }
+
+    private static int lastKeyOf(int year) {
+        return GedcomDate.key(year, 15, 31);
+    }
+
+    /*
+     * Collects events and lifespans, where each thread of a parallel pass has its own builder
+     */
+    private static final class Builder {
+        private final List<Entry> events = new ArrayList<>();
+        private final List<Lifespan> lifespans = new ArrayList<>();
+
+        void add(Individual individual) {
+            long born = GedcomDate.NONE;
+            long died = GedcomDate.NONE;
+            for (Event event : individual.getEvents()) {
+                long date = event.getDateValue();
+                if (!GedcomDate.isDate(date)) {
+                    continue;
+                }
+                events.add(new Entry(event, individual, null));
+
+                switch (event.getTag()) {
+                    case BIRT, CHR -> {
+                        if (born == GedcomDate.NONE || GedcomDate.compare(date, born) < 0) {
+                            born = date;
+                        }
+                    }
+                    case DEAT, BURI -> {
+                        if (died == GedcomDate.NONE || GedcomDate.endKey(date) > GedcomDate.endKey(died)) {
+                            died = date;
+                        }
+                    }
+                    default -> {}
+                }
+            }
+
+            if (GedcomDate.isDate(born) || GedcomDate.isDate(died)) {
+                int start = GedcomDate.isDate(born)
+                        ? GedcomDate.startKey(born)
+                        : firstKeyOf(GedcomDate.year(died) - MAX_AGE);
+                int end = GedcomDate.isDate(died)
+                        ? GedcomDate.endKey(died)
+                        : lastKeyOf(GedcomDate.year(born) + MAX_AGE);
+                lifespans.add(new Lifespan(individual, start, Math.max(start, end)));
+            }
+        }
+
+        void add(FAM family, Map</* id */ String, Individual> individuals) {
+            Collection<MARR> marriages = family.MARR();
+            if (marriages.isEmpty()) {
+                return;
+            }
+            Individual husband = family.getHusbandId().map(individuals::get).orElse(null);
+            Individual wife = family.getWifeId().map(individuals::get).orElse(null);
+            if (null == husband) {
+                husband = wife;
+                wife = null;
+            }
+            if (null == husband) {
+                return;
+            }
+            for (MARR marriage : marriages) {
+                if (GedcomDate.isDate(marriage.getDateValue())) {
+                    events.add(new Entry(marriage, husband, wife));
+                }
+            }
+        }
+
+        void addAll(Builder other) {
+            events.addAll(other.events);
+            lifespans.addAll(other.lifespans);
+        }
+    }
+
+    /*
+     * Intervals [starts[i], ends[i]], ordered by start
+     */
+    private static final class Intervals {
+        private final int[] starts;
+        private final int[] ends;
+        private final int[] maxEnds; // maxEnds[i] = max(ends[0..i])
+
+        Intervals(int[] starts, int[] ends) {
+            this.starts = starts;
+            this.ends = ends;
+            this.maxEnds = new int[ends.length];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < ends.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        /**
+         * Calls consumer with (in order) the index of each interval that overlaps [from, to]
+         */
+        void overlapping(int from, int to, IntConsumer consumer) {
+            // All intervals before 'first' end before 'from', and all intervals from 'last' start after 'to'
+            int first = firstAtLeast(maxEnds, from);
+            int last = firstAtLeast(starts, to + 1);
+            for (int i = first; i < last; i++) {
+                if (ends[i] >= from) {
+                    consumer.accept(i);
+                }
+            }
+        }
+
+        /**
+         * Index of first value in (ascending) values that is at least key, or values.length if none
+         */
+        private static int firstAtLeast(int[] values, int key) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * GEDCOM 5.5.1 dates (DATE_VALUE), packed into a long.
+ * <p/>
+ * A date such as
+ * <pre>
+ * 2 DATE ABT 1850
+ * 2 DATE BET 12 MAR 1750/51 AND 1760
+ * 2 DATE FROM @#DJULIAN@ 1700 TO 1710
+ * 2 DATE INT 1 JAN 1800 (as stated in the church book)
+ * </pre>
+ * is parsed into its calendar, qualifier, (start) year, month and day and, for ranges and
+ * periods, the end year, month and day. Unknown parts (e.g. month and day of "1850") are 0.
+ * These are packed into a long, so that dates may be kept in arrays and compared without
+ * creating any objects. The start date is kept in the most significant bits, so the natural
+ * order of packed dates is chronological (by start date, and then by qualifier, so that
+ * "BEF 1850" &lt; "ABT 1850" &lt; "1850" &lt; "AFT 1850").
+ * <p/>
+ * Dates are kept as given in their calendar. Dates in different calendars (typically Julian and
+ * Gregorian dates) are compared as if they were in the same calendar, which is off by at most
+ * 13 days; use {@link #toEpochDay(long)} if that matters.
+ * <p/>
+ * A dual year, e.g. "1750/51", is kept as the later (new style) year, so that it is ordered
+ * correctly, and is marked as dual.
+ * <p/>
+ * Anything that is not a date (e.g. a date phrase only, or an empty value) is packed as {@link #NONE}.
+ */
+public final class GedcomDate {
+
+    /**
+     * Not a date, which is ordered before all dates
+     */
+    public static final long NONE = 0L;
+
+    public enum Calendar {
+        GREGORIAN, JULIAN, HEBREW, FRENCH_R
+    }
+
+    /**
+     * Qualifiers, in the order dates with the same start date are ordered
+     */
+    public enum Qualifier {
+        BEFORE, // BEF
+        BETWEEN, // BET .. AND ..
+        FROM, // FROM .. [TO ..]
+        ABOUT, // ABT
+        CALCULATED, // CAL
+        ESTIMATED, // EST
+        EXACT,
+        INTERPRETED, // INT .. (..)
+        TO, // TO ..
+        AFTER // AFT
+    }
+
+    // Layout, from most significant bit: year (15), month (4), day (5), qualifier (4),
+    // end year (15), end month (4), end day (5), calendar (2), dual (1)
+    private static final int DUAL_SHIFT = 0;
+    private static final int CALENDAR_SHIFT = 1;
+    private static final int END_DAY_SHIFT = 3;
+    private static final int END_MONTH_SHIFT = 8;
+    private static final int END_YEAR_SHIFT = 12;
+    private static final int QUALIFIER_SHIFT = 27;
+    private static final int DAY_SHIFT = 31;
+    private static final int MONTH_SHIFT = 36;
+    private static final int YEAR_SHIFT = 40;
+
+    private static final int YEAR_BIAS = 1 << 14; // years in [-16383, 16383]
+    private static final int YEAR_MASK = (1 << 15) - 1;
+
+    private static final Calendar[] CALENDARS = Calendar.values();
+    private static final Qualifier[] QUALIFIERS = Qualifier.values();
+
+    private static final String[] GREGORIAN_MONTHS = {
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"
+    };
+    private static final String[] HEBREW_MONTHS = {
+            "TSH", "CSH", "KSL", "TVT", "SHV", "ADR", "ADS", "NSN", "IYR", "SVN", "TMZ", "AAV", "ELL"
+    };
+    private static final String[] FRENCH_MONTHS = {
+            "VEND", "BRUM", "FRIM", "NIVO", "PLUV", "VENT", "GERM", "FLOR", "PRAI", "MESS", "THER", "FRUC", "COMP"
+    };
+
+    private GedcomDate() {}
+
+    /*
+     * Parsing
+     */
+
+    // A single date, i.e. [calendar] [[day] month] year[/yy] [B.C.]
+    private static final class Date {
+        Calendar calendar = Calendar.GREGORIAN;
+        int year;
+        int month;
+        int day;
+        boolean isDual;
+    }
+
+    /**
+     * Parses a DATE_VALUE
+     * @return packed date, or {@link #NONE} if not a date
+     */
+    public static long parse(String value) {
+        if (null == value) {
+            return NONE;
+        }
+        String _value = value.trim();
+        int phrase = _value.indexOf('(');
+        if (phrase >= 0) {
+            // Date phrase, e.g. "INT 1800 (as stated)" or "(unknown)"
+            _value = _value.substring(0, phrase).trim();
+        }
+        if (_value.isEmpty()) {
+            return NONE;
+        }
+        String[] tokens = _value.toUpperCase(Locale.ROOT).split("\\s+");
+
+        Qualifier qualifier = Qualifier.EXACT;
+        String endKeyword = null;
+        int pos = 0;
+        switch (tokens[0]) {
+            case "BEF", "BEF." -> qualifier = Qualifier.BEFORE;
+            case "AFT", "AFT." -> qualifier = Qualifier.AFTER;
+            case "ABT", "ABT." -> qualifier = Qualifier.ABOUT;
+            case "CAL", "CAL." -> qualifier = Qualifier.CALCULATED;
+            case "EST", "EST." -> qualifier = Qualifier.ESTIMATED;
+            case "INT", "INT." -> qualifier = Qualifier.INTERPRETED;
+            case "TO" -> qualifier = Qualifier.TO;
+            case "BET" -> {
+                qualifier = Qualifier.BETWEEN;
+                endKeyword = "AND";
+            }
+            case "FROM" -> {
+                qualifier = Qualifier.FROM;
+                endKeyword = "TO";
+            }
+            default -> {
+                pos = -1;
+            }
+        }
+        pos++;
+
+        int end = tokens.length;
+        if (null != endKeyword) {
+            for (int i = pos; i < tokens.length; i++) {
+                if (tokens[i].equals(endKeyword)) {
+                    end = i;
+                    break;
+                }
+            }
+        }
+
+        Date start = parseDate(tokens, pos, end);
+        if (null == start) {
+            return NONE;
+        }
+        Date last = null;
+        if (end < tokens.length) {
+            last = parseDate(tokens, end + 1, tokens.length);
+            if (null == last && qualifier == Qualifier.BETWEEN) {
+                return NONE;
+            }
+        }
+        return pack(start.calendar, qualifier, start.year, start.month, start.day, start.isDual,
+                null != last ? last.year : 0, null != last ? last.month : 0, null != last ? last.day : 0);
+    }
+
+    private static Date parseDate(String[] tokens, int start, int end) {
+        Date date = new Date();
+        int pos = start;
+        if (pos < end && tokens[pos].startsWith("@#D")) {
+            String escape = tokens[pos];
+            if (escape.equals("@#DFRENCH") && pos + 1 < end && tokens[pos + 1].equals("R@")) {
+                escape = "@#DFRENCH R@";
+                pos++;
+            }
+            switch (escape) {
+                case "@#DGREGORIAN@" -> date.calendar = Calendar.GREGORIAN;
+                case "@#DJULIAN@" -> date.calendar = Calendar.JULIAN;
+                case "@#DHEBREW@" -> date.calendar = Calendar.HEBREW;
+                case "@#DFRENCH R@" -> date.calendar = Calendar.FRENCH_R;
+                default -> {
+                    return null; // unknown calendar
+                }
+            }
+            pos++;
+        }
+
+        // Era
+        boolean isBC = false;
+        if (end > pos && (tokens[end - 1].equals("B.C.") || tokens[end - 1].equals("BC") || tokens[end - 1].equals("BCE"))) {
+            isBC = true;
+            end--;
+        }
+
+        int count = end - pos;
+        if (count < 1 || count > 3) {
+            return null;
+        }
+        if (!parseYear(tokens[end - 1], date)) {
+            return null;
+        }
+        if (count >= 2) {
+            date.month = parseMonth(tokens[end - 2], date.calendar);
+            if (date.month == 0) {
+                return null;
+            }
+        }
+        if (count == 3) {
+            date.day = parseNumber(tokens[pos]);
+            if (date.day < 1 || date.day > 31) {
+                return null;
+            }
+        }
+        if (isBC) {
+            date.year = -date.year;
+        }
+        return date;
+    }
+
+    private static boolean parseYear(String token, Date date) {
+        int slash = token.indexOf('/');
+        if (slash < 0) {
+            date.year = parseNumber(token);
+            return date.year >= 0 && date.year < YEAR_BIAS;
+        }
+
+        // Dual year, e.g. 1750/51, kept as the later year
+        int year = parseNumber(token.substring(0, slash));
+        String _alternative = token.substring(slash + 1);
+        int alternative = parseNumber(_alternative);
+        if (year < 0 || year + 1 >= YEAR_BIAS || alternative < 0 || _alternative.isEmpty() || _alternative.length() > 2) {
+            return false;
+        }
+        date.year = year + 1;
+        date.isDual = true;
+        return true;
+    }
+
+    private static int parseMonth(String token, Calendar calendar) {
+        String[] months = switch (calendar) {
+            case HEBREW -> HEBREW_MONTHS;
+            case FRENCH_R -> FRENCH_MONTHS;
+            default -> GREGORIAN_MONTHS;
+        };
+        for (int i = 0; i < months.length; i++) {
+            if (months[i].equals(token)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return non-negative number, or -1 if not a number
+     */
+    private static int parseNumber(String token) {
+        if (token.isEmpty() || token.length() > 5) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = 10 * value + (c - '0');
+        }
+        return value;
+    }
+
+    /*
+     * Packing
+     */
+
+    public static long pack(
+            Calendar calendar, Qualifier qualifier, int year, int month, int day, boolean isDual,
+            int endYear, int endMonth, int endDay
+    ) {
+        boolean hasEnd = endYear != 0 || endMonth != 0 || endDay != 0;
+        return ((long) ((year + YEAR_BIAS) & YEAR_MASK) << YEAR_SHIFT)
+                | ((long) (month & 0xf) << MONTH_SHIFT)
+                | ((long) (day & 0x1f) << DAY_SHIFT)
+                | ((long) (qualifier.ordinal() & 0xf) << QUALIFIER_SHIFT)
+                | (hasEnd ? (long) ((endYear + YEAR_BIAS) & YEAR_MASK) << END_YEAR_SHIFT : 0L)
+                | ((long) (endMonth & 0xf) << END_MONTH_SHIFT)
+                | ((long) (endDay & 0x1f) << END_DAY_SHIFT)
+                | ((long) (calendar.ordinal() & 0x3) << CALENDAR_SHIFT)
+                | (isDual ? 1L << DUAL_SHIFT : 0L);
+    }
+
+    public static boolean isDate(long date) {
+        return date != NONE;
+    }
+
+    public static Calendar calendar(long date) {
+        return CALENDARS[(int) (date >>> CALENDAR_SHIFT) & 0x3];
+    }
+
+    public static Qualifier qualifier(long date) {
+        return QUALIFIERS[(int) (date >>> QUALIFIER_SHIFT) & 0xf];
+    }
+
+    /**
+     * Year, where years B.C. are negative (and the later year of a dual year)
+     */
+    public static int year(long date) {
+        return ((int) (date >>> YEAR_SHIFT) & YEAR_MASK) - YEAR_BIAS;
+    }
+
+    /**
+     * Month, in [1, 13], or 0 if unknown
+     */
+    public static int month(long date) {
+        return (int) (date >>> MONTH_SHIFT) & 0xf;
+    }
+
+    /**
+     * Day, in [1, 31], or 0 if unknown
+     */
+    public static int day(long date) {
+        return (int) (date >>> DAY_SHIFT) & 0x1f;
+    }
+
+    public static boolean isDual(long date) {
+        return (date & (1L << DUAL_SHIFT)) != 0L;
+    }
+
+    /**
+     * Whether date is a range (BET .. AND ..) or a period (FROM .. TO ..) with an end
+     */
+    public static boolean hasEnd(long date) {
+        return ((date >>> END_YEAR_SHIFT) & YEAR_MASK) != 0L;
+    }
+
+    public static int endYear(long date) {
+        return hasEnd(date) ? ((int) (date >>> END_YEAR_SHIFT) & YEAR_MASK) - YEAR_BIAS : 0;
+    }
+
+    public static int endMonth(long date) {
+        return (int) (date >>> END_MONTH_SHIFT) & 0xf;
+    }
+
+    public static int endDay(long date) {
+        return (int) (date >>> END_DAY_SHIFT) & 0x1f;
+    }
+
+    /*
+     * Comparing
+     */
+
+    /**
+     * Chronological order, by start date and then by qualifier, see above
+     */
+    public static int compare(long a, long b) {
+        return Long.compare(a, b);
+    }
+
+    /**
+     * Key that orders dates by start date only, disregarding qualifier, end and calendar.
+     * Unknown month and day are ordered first, i.e. "1850" orders as 1 JAN 1850.
+     */
+    public static int startKey(long date) {
+        return (int) (date >>> DAY_SHIFT);
+    }
+
+    /**
+     * Key that orders dates by end date, which is the start date for dates that are not ranges
+     * or periods. Unknown month and day are ordered last, i.e. "1850" orders as 31 DEC 1850.
+     */
+    public static int endKey(long date) {
+        int year = hasEnd(date) ? endYear(date) : year(date);
+        int month = hasEnd(date) ? endMonth(date) : month(date);
+        int day = hasEnd(date) ? endDay(date) : day(date);
+        return key(year, 0 == month ? 15 : month, 0 == day ? 31 : day);
+    }
+
+    /**
+     * Key of date, comparable to {@link #startKey(long)} and {@link #endKey(long)}, e.g. to find
+     * dates in a given period
+     */
+    public static int key(int year, int month, int day) {
+        return (((year + YEAR_BIAS) & YEAR_MASK) << 9) | ((month & 0xf) << 5) | (day & 0x1f);
+    }
+
+    /**
+     * Day (of start date) since 1970-01-01 in the proleptic Gregorian calendar, where
+     * Julian dates are converted. Unknown month and day are taken to be 1.
+     * Hebrew and French republican dates are not converted.
+     */
+    public static long toEpochDay(long date) {
+        int year = year(date);
+        int month = Math.max(1, Math.min(12, month(date)));
+        int day = Math.max(1, day(date));
+        if (calendar(date) == Calendar.JULIAN) {
+            // Julian day number, then shifted to epoch
+            int a = (14 - month) / 12;
+            long y = year + 4800L - a;
+            long m = month + 12L * a - 3;
+            long jdn = day + (153 * m + 2) / 5 + 365 * y + Math.floorDiv(y, 4) - 32083;
+            return jdn - 2440588L;
+        }
+        day = Math.min(day, LocalDate.of(year, month, 1).lengthOfMonth());
+        return LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    /**
+     * Renders a packed date as a DATE_VALUE
+     */
+    public static String toString(long date) {
+        if (!isDate(date)) {
+            return "";
+        }
+        StringBuilder buf = new StringBuilder();
+        Qualifier qualifier = qualifier(date);
+        switch (qualifier) {
+            case BEFORE -> buf.append("BEF ");
+            case AFTER -> buf.append("AFT ");
+            case ABOUT -> buf.append("ABT ");
+            case CALCULATED -> buf.append("CAL ");
+            case ESTIMATED -> buf.append("EST ");
+            case INTERPRETED -> buf.append("INT ");
+            case TO -> buf.append("TO ");
+            case BETWEEN -> buf.append("BET ");
+            case FROM -> buf.append("FROM ");
+            default -> {}
+        }
+        Calendar calendar = calendar(date);
+        appendDate(buf, calendar, year(date), month(date), day(date), isDual(date));
+        if (hasEnd(date)) {
+            buf.append(qualifier == Qualifier.BETWEEN ? " AND " : " TO ");
+            appendDate(buf, calendar, endYear(date), endMonth(date), endDay(date), false);
+        }
+        return buf.toString();
+    }
+
+    private static void appendDate(StringBuilder buf, Calendar calendar, int year, int month, int day, boolean isDual) {
+        switch (calendar) {
+            case JULIAN -> buf.append("@#DJULIAN@ ");
+            case HEBREW -> buf.append("@#DHEBREW@ ");
+            case FRENCH_R -> buf.append("@#DFRENCH R@ ");
+            default -> {}
+        }
+        if (day > 0) {
+            buf.append(day).append(' ');
+        }
+        if (month > 0) {
+            String[] months = switch (calendar) {
+                case HEBREW -> HEBREW_MONTHS;
+                case FRENCH_R -> FRENCH_MONTHS;
+                default -> GREGORIAN_MONTHS;
+            };
+            buf.append(months[month - 1]).append(' ');
+        }
+        if (isDual) {
+            buf.append(year - 1).append('/').append(String.format("%02d", year % 100));
+        } else {
+            buf.append(Math.abs(year));
+        }
+        if (year < 0) {
+            buf.append(" B.C.");
+        }
+    }
+}
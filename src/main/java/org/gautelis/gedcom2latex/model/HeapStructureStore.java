@@ -0,0 +1,259 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Arrays;
+
+/**
+ * Columnar storage of parsed GEDCOM lines, on the Java heap.
+ * <p/>
+ * Instead of one object (with a map of nested structures and a buffer of data) per line,
+ * node properties are kept in parallel primitive arrays:
+ * <pre>
+ *   level[node]        level of line
+ *   tag[node]          tag code
+ *   parent[node]       enclosing node, or NONE
+ *   firstChild[node]   first nested node, or NONE
+ *   nextSibling[node]  next node with same parent, or NONE
+ *   xref[node]         id of pointer (e.g. "@I1@"), or NONE
+ *   dataXref[node]     id of pointer valued data, or NONE
+ *   dataStart[node]    start of data in the shared data arena
+ *   dataLength[node]   length of data in the shared data arena
+ * </pre>
+ * All data is kept in one shared char arena.
+ */
+public final class HeapStructureStore extends WritableStructureStore {
+    // Keep well clear of the 2G limit of arrays, so callers may roll over to a new store
+    private static final int MAX_NODES = 1 << 28;
+    private static final int MAX_DATA = 1 << 30;
+
+    private static final int INITIAL_NODES = 1024;
+    private static final int INITIAL_DATA = 16 * 1024;
+
+    // A typical record, see forRecord()
+    private static final int RECORD_NODES = 32;
+    private static final int RECORD_DATA = 1024;
+
+    private int size = 0;
+    private int[] levels;
+    private int[] tags;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] pointers;
+    private int[] dataXrefs;
+    private int[] dataStarts;
+    private int[] dataLengths;
+
+    private char[] arena;
+    private int arenaSize = 0;
+
+    public HeapStructureStore(XrefTable xrefs) {
+        this(xrefs, INITIAL_NODES, INITIAL_DATA);
+    }
+
+    /**
+     * @param nodes initial capacity, in nodes
+     * @param data initial capacity of data arena, in chars
+     */
+    public HeapStructureStore(XrefTable xrefs, int nodes, int data) {
+        super(xrefs);
+        if (nodes < 1 || data < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + nodes + " nodes, " + data + " chars");
+        }
+        levels = new int[nodes];
+        tags = new int[nodes];
+        parents = new int[nodes];
+        firstChildren = new int[nodes];
+        nextSiblings = new int[nodes];
+        pointers = new int[nodes];
+        dataXrefs = new int[nodes];
+        dataStarts = new int[nodes];
+        dataLengths = new int[nodes];
+        arena = new char[data];
+    }
+
+    /**
+     * A store sized for a single record, e.g. when records are loaded one at a time
+     * (see {@link org.gautelis.gedcom2latex.RandomAccessLoader}), which grows as needed.
+     */
+    public static HeapStructureStore forRecord(XrefTable xrefs) {
+        return new HeapStructureStore(xrefs, RECORD_NODES, RECORD_DATA);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isFull() {
+        return size >= MAX_NODES || arenaSize >= MAX_DATA;
+    }
+
+    @Override
+    protected int addNode(int parent, int previousSibling, int level, int xref, int dataXref, int tag, CharSequence data, int start, int end) {
+        if (size == levels.length) {
+            growNodes();
+        }
+        final int node = size++;
+
+        levels[node] = level;
+        tags[node] = tag;
+        parents[node] = parent;
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+
+        pointers[node] = xref;
+        dataXrefs[node] = dataXref;
+
+        dataStarts[node] = arenaSize;
+        dataLengths[node] = 0;
+        if (null != data) {
+            append(data, start, end);
+            dataLengths[node] = arenaSize - dataStarts[node];
+        }
+
+        if (parent != NONE) {
+            if (previousSibling == NONE) {
+                firstChildren[parent] = node;
+            } else {
+                nextSiblings[previousSibling] = node;
+            }
+        }
+        return node;
+    }
+
+    @Override
+    protected void appendNodeData(int node, CharSequence data) {
+        if (null == data) {
+            return;
+        }
+        if (node != size - 1) {
+            throw new IllegalStateException("Can only append data to last node (" + (size - 1) + "), not " + node);
+        }
+        ensureArena(1);
+        arena[arenaSize++] = '\n';
+        int start = trimStart(data, 0, data.length());
+        append(data, start, trimEnd(data, start, data.length()));
+        dataLengths[node] = arenaSize - dataStarts[node];
+    }
+
+    private void append(CharSequence data, int start, int end) {
+        int length = end - start;
+        ensureArena(length);
+        if (data instanceof String s) {
+            s.getChars(start, end, arena, arenaSize);
+            arenaSize += length;
+        } else {
+            for (int i = start; i < end; i++) {
+                arena[arenaSize++] = data.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Discards all nodes, so that the store may be reused (keeping its capacity). Structures
+     * viewing nodes in this store are no longer valid.
+     */
+    public void clear() {
+        if (isFrozen()) {
+            throw new IllegalStateException("Store is frozen");
+        }
+        size = 0;
+        arenaSize = 0;
+    }
+
+    /**
+     * Also releases unused capacity, since nothing more will be added, unless there
+     * is too little of it to be worth copying.
+     */
+    @Override
+    public void freeze() {
+        if (!isFrozen() && (isSlack(levels.length, size) || isSlack(arena.length, arenaSize))) {
+            levels = Arrays.copyOf(levels, size);
+            tags = Arrays.copyOf(tags, size);
+            parents = Arrays.copyOf(parents, size);
+            firstChildren = Arrays.copyOf(firstChildren, size);
+            nextSiblings = Arrays.copyOf(nextSiblings, size);
+            pointers = Arrays.copyOf(pointers, size);
+            dataXrefs = Arrays.copyOf(dataXrefs, size);
+            dataStarts = Arrays.copyOf(dataStarts, size);
+            dataLengths = Arrays.copyOf(dataLengths, size);
+            arena = Arrays.copyOf(arena, arenaSize);
+        }
+        super.freeze();
+    }
+
+    private static boolean isSlack(int capacity, int used) {
+        return capacity - used > Math.max(RECORD_NODES, used >> 3);
+    }
+
+    private void growNodes() {
+        int capacity = levels.length + (levels.length >> 1);
+        levels = Arrays.copyOf(levels, capacity);
+        tags = Arrays.copyOf(tags, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        firstChildren = Arrays.copyOf(firstChildren, capacity);
+        nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+        pointers = Arrays.copyOf(pointers, capacity);
+        dataXrefs = Arrays.copyOf(dataXrefs, capacity);
+        dataStarts = Arrays.copyOf(dataStarts, capacity);
+        dataLengths = Arrays.copyOf(dataLengths, capacity);
+    }
+
+    private void ensureArena(int length) {
+        if (arenaSize + length > arena.length) {
+            int capacity = Math.max(arenaSize + length, arena.length + (arena.length >> 1));
+            arena = Arrays.copyOf(arena, capacity);
+        }
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    @Override
+    public int getTag(int node) {
+        return tags[node];
+    }
+
+    @Override
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    @Override
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    @Override
+    public int getXref(int node) {
+        return pointers[node];
+    }
+
+    @Override
+    public int getDataXref(int node) {
+        return dataXrefs[node];
+    }
+
+    @Override
+    public boolean hasData(int node) {
+        return dataLengths[node] > 0;
+    }
+
+    @Override
+    public String getData(int node) {
+        return values.get(arena, dataStarts[node], dataStarts[node] + dataLengths[node]);
+    }
+
+    @Override
+    public void appendData(int node, StringBuffer buf) {
+        buf.append(arena, dataStarts[node], dataLengths[node]);
+    }
+}
@@ -18,6 +18,16 @@ public class Individual {
     private static String ANCHOR_RE = "<a\\s+(?:[^>]*?\\s+)?href=\"(?<url>[^\"]*)\"[^>]*>(?<text>.*?)</a>";
     private final Pattern anchorPattern = Pattern.compile(ANCHOR_RE, Pattern.CASE_INSENSITIVE);
 
+    /**
+     * Tag paths (from level 0) used by the accessors, regardless of templates
+     */
+    public static final List<String> TAG_PATHS = List.of(
+            "INDI.NAME", "INDI.SEX", "INDI.FAMC", "INDI.FAMS",
+            "INDI.BIRT.DATE", "INDI.DEAT.DATE", // see asProband()
+            "INDI.OBJE.FILE", // see getURIs()
+            "INDI.SOUR.DATA.TEXT" // see getSourceLatex()
+    );
+
     private final INDI self;
     private Individual father;
     private Individual mother;
@@ -154,6 +164,18 @@ public class Individual {
         return burials;
     }
 
+    /**
+     * Births, baptisms, deaths and burials, in that order
+     */
+    public Collection<Event> getEvents() {
+        Collection<Event> events = new ArrayList<>();
+        events.addAll(self.BIRT());
+        events.addAll(self.CHR());
+        events.addAll(self.DEAT());
+        events.addAll(self.BURI());
+        return events;
+    }
+
     public Collection<URI> getURIs() {
         Collection<URI> uris = new ArrayList<>();
         for (OBJE record : self.OBJE()) {
@@ -175,6 +197,22 @@ public class Individual {
         return uris;
     }
 
+    /**
+     * References to media files that are not URLs, e.g. paths in a GEDZIP archive
+     */
+    public Collection<String> getMediaReferences() {
+        Collection<String> references = new ArrayList<>();
+        for (OBJE record : self.OBJE()) {
+            for (FILE file : record.FILE()) {
+                String reference = file.getReference();
+                if (null != reference && !reference.isEmpty() && !reference.contains(":")) {
+                    references.add(reference);
+                }
+            }
+        }
+        return references;
+    }
+
     public String getSourceLatex() {
         Collection<String> texts = new ArrayList<>();
         //texts.add("\\vspace{.5cm}");
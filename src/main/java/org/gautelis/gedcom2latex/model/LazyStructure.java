@@ -0,0 +1,131 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+/**
+ * A level 0 record whose nested structures are parsed on demand.
+ * <p/>
+ * Tag and pointer of the record are known up front, but everything else is parsed
+ * the first time it is asked for, by way of a 'materializer' that loads the record.
+ * The materializer is expected to cache loaded records (with some eviction policy),
+ * so that a record may be parsed again if it is evicted and asked for later.
+ */
+public final class LazyStructure extends Structure {
+    private final int record;
+    private final int tag;
+    private final String pointer;
+    private final int xref;
+    private final IntFunction<Structure> materializer;
+
+    /**
+     * @param record identifies record, as understood by 'materializer'
+     * @param tag tag of record, e.g. "INDI"
+     * @param pointer pointer of record, e.g. "@I1@", or null
+     * @param xrefs where pointer is registered
+     * @param materializer loads record
+     */
+    public LazyStructure(int record, String tag, String pointer, XrefTable xrefs, IntFunction<Structure> materializer) {
+        this.record = record;
+        this.tag = Tag.intern(tag);
+        this.pointer = pointer;
+        this.xref = null != pointer ? xrefs.intern(pointer) : XrefTable.NONE;
+        this.materializer = materializer;
+    }
+
+    private Structure materialize() {
+        return materializer.apply(record);
+    }
+
+    @Override
+    public boolean isLazy() {
+        return true;
+    }
+
+    @Override
+    public StructureStore getStore() {
+        return materialize().getStore();
+    }
+
+    @Override
+    public int getNode() {
+        return materialize().getNode();
+    }
+
+    @Override
+    public long getLevel() {
+        return 0L;
+    }
+
+    @Override
+    public Optional<String> getPointer() {
+        return Optional.ofNullable(pointer);
+    }
+
+    @Override
+    public int getXref() {
+        return xref;
+    }
+
+    @Override
+    public int getDataXref() {
+        return materialize().getDataXref();
+    }
+
+    @Override
+    public String getTag() {
+        return Tag.name(tag);
+    }
+
+    @Override
+    public int getTagCode() {
+        return tag;
+    }
+
+    @Override
+    public Optional<String> getData() {
+        return materialize().getData();
+    }
+
+    @Override
+    public String getData(String defaultValue) {
+        return materialize().getData(defaultValue);
+    }
+
+    @Override
+    public Collection<Structure> getNestedStructures(int tag) {
+        return materialize().getNestedStructures(tag);
+    }
+
+    @Override
+    public Optional<Structure> getNestedStructure(int tag) {
+        return materialize().getNestedStructure(tag);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LazyStructure other)) {
+            return false;
+        }
+        return materializer == other.materializer && record == other.record;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(materializer) + record;
+    }
+
+    @Override
+    public String toString() {
+        return materialize().toString();
+    }
+
+    @Override
+    public void deepToString(StringBuffer buf) {
+        materialize().deepToString(buf);
+    }
+}
@@ -0,0 +1,130 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only storage of parsed GEDCOM lines, memory mapped from a {@link Snapshot}.
+ * <p/>
+ * Nodes are fixed size records in node pages, and data is kept UTF-8 encoded in
+ * data pages. No data is touched until asked for, so opening a snapshot is (almost)
+ * independent of its size.
+ * <p/>
+ * Node record layout:
+ * <pre>
+ *   0  int   level
+ *   4  int   tag
+ *   8  int   parent
+ *  12  int   firstChild
+ *  16  int   nextSibling
+ *  20  int   xref
+ *  24  int   dataXref
+ *  28  int   length of data (in bytes)
+ *  32  long  address of data, i.e. offset into data pages
+ * </pre>
+ * Data is laid out so that no value straddles two data pages.
+ * <p/>
+ * Tag codes and xref ids are as they were when the snapshot was written. If they differ
+ * in the running process (e.g. custom tags registered in another order), they are mapped.
+ */
+public final class MappedStructureStore extends StructureStore {
+    static final int LEVEL = 0;
+    static final int TAG = 4;
+    static final int PARENT = 8;
+    static final int FIRST_CHILD = 12;
+    static final int NEXT_SIBLING = 16;
+    static final int XREF = 20;
+    static final int DATA_XREF = 24;
+    static final int DATA_LENGTH = 28;
+    static final int DATA_ADDRESS = 32;
+    static final int RECORD_SIZE = 40;
+
+    static final int PAGE_SIZE = 1 << 26; // 64 MiB
+    static final int NODES_PER_PAGE = PAGE_SIZE / RECORD_SIZE;
+
+    private final int size;
+    private final ByteBuffer[] nodePages;
+    private final ByteBuffer[] dataPages;
+    private final int[] tags; // maps stored tag code to tag code, or null if identical
+    private final int[] refs; // maps stored xref id to xref id, or null if identical
+
+    MappedStructureStore(
+            XrefTable xrefs, int size, ByteBuffer[] nodePages, ByteBuffer[] dataPages, int[] tags, int[] refs
+    ) {
+        super(xrefs);
+        this.size = size;
+        this.nodePages = nodePages;
+        this.dataPages = dataPages;
+        this.tags = tags;
+        this.refs = refs;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int getInt(int node, int field) {
+        return nodePages[node / NODES_PER_PAGE].getInt((node % NODES_PER_PAGE) * RECORD_SIZE + field);
+    }
+
+    private int mapRef(int ref) {
+        return null == refs || ref == XrefTable.NONE ? ref : refs[ref];
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return getInt(node, LEVEL);
+    }
+
+    @Override
+    public int getTag(int node) {
+        int tag = getInt(node, TAG);
+        return null == tags ? tag : tags[tag];
+    }
+
+    @Override
+    public int getParent(int node) {
+        return getInt(node, PARENT);
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return getInt(node, FIRST_CHILD);
+    }
+
+    @Override
+    public int getNextSibling(int node) {
+        return getInt(node, NEXT_SIBLING);
+    }
+
+    @Override
+    public int getXref(int node) {
+        return mapRef(getInt(node, XREF));
+    }
+
+    @Override
+    public int getDataXref(int node) {
+        return mapRef(getInt(node, DATA_XREF));
+    }
+
+    @Override
+    public boolean hasData(int node) {
+        return getInt(node, DATA_LENGTH) > 0;
+    }
+
+    @Override
+    public String getData(int node) {
+        int length = getInt(node, DATA_LENGTH);
+        long address = nodePages[node / NODES_PER_PAGE].getLong((node % NODES_PER_PAGE) * RECORD_SIZE + DATA_ADDRESS);
+        byte[] bytes = ValuePool.isPooled(length) ? ValuePool.buffer() : new byte[length];
+        if (length > 0) {
+            dataPages[(int) (address / PAGE_SIZE)].get((int) (address % PAGE_SIZE), bytes, 0, length);
+        }
+        return values.get(bytes, length);
+    }
+
+    @Override
+    public void appendData(int node, StringBuffer buf) {
+        buf.append(getData(node));
+    }
+}
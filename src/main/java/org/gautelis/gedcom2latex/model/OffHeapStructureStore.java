@@ -0,0 +1,337 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Storage of parsed GEDCOM lines outside of the Java heap.
+ * <p/>
+ * Nodes are kept as fixed size records in off-heap pages, and all data is kept UTF-8 encoded in separate off-heap pages. Pages are either allocated as direct
+ * buffers or, if a scratch directory is given, mapped from a (sparse) scratch file. In the
+ * latter case the operating system pages parsed data in and out as needed, so the size
+ * of the input is neither bound by the heap nor by the amount of direct memory.
+ * <p/>
+ * Node record layout:
+ * <pre>
+ *   0  int   level
+ *   4  int   tag
+ *   8  int   parent
+ *  12  int   firstChild
+ *  16  int   nextSibling
+ *  20  int   length of data (in bytes)
+ *  24  long  address of data
+ *  32  int   xref, id of pointer or -1 if no pointer
+ *  36  int   dataXref, id of pointer valued data or -1
+ * </pre>
+ * where an address is a page number (high 32 bits) and an offset into that page (low 32 bits).
+ */
+public final class OffHeapStructureStore extends WritableStructureStore {
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private static final int PAGE_SIZE = 1 << 22; // 4 MiB
+
+    private static final int LEVEL = 0;
+    private static final int TAG = 4;
+    private static final int PARENT = 8;
+    private static final int FIRST_CHILD = 12;
+    private static final int NEXT_SIBLING = 16;
+    private static final int DATA_LENGTH = 20;
+    private static final int DATA_ADDRESS = 24;
+    private static final int XREF = 32;
+    private static final int DATA_XREF = 36;
+    private static final int RECORD_SIZE = 40;
+
+    private static final int NODES_PER_PAGE = PAGE_SIZE / RECORD_SIZE;
+    private static final int MAX_NODES = 1 << 30;
+
+    private final Scratch scratch; // null if pages are direct buffers
+
+    private int size = 0;
+    private ByteBuffer[] nodePages = new ByteBuffer[16];
+
+    private ByteBuffer[] dataPages = new ByteBuffer[16];
+    private int dataPageCount = 0;
+    private int dataPosition = 0; // in current (last) data page
+
+    /**
+     * Creates a store with pages allocated as direct buffers.
+     */
+    public OffHeapStructureStore(XrefTable xrefs) {
+        super(xrefs);
+        this.scratch = null;
+    }
+
+    /**
+     * Creates a store with pages mapped from a scratch file in 'directory'. The scratch
+     * file is removed when the store is no longer used.
+     */
+    public OffHeapStructureStore(XrefTable xrefs, Path directory) throws IOException {
+        super(xrefs);
+        Path file = Files.createTempFile(directory, "gedcom2latex-", ".scratch");
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.SPARSE, StandardOpenOption.DELETE_ON_CLOSE);
+        file.toFile().deleteOnExit();
+
+        this.scratch = new Scratch(channel);
+        cleaner.register(this, scratch);
+    }
+
+    /**
+     * Closes scratch file when store is unreachable. Mapped pages stay valid until unmapped by the GC.
+     */
+    private static final class Scratch implements Runnable {
+        private final FileChannel channel;
+        private long size = 0L;
+
+        private Scratch(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private synchronized ByteBuffer map(int length) {
+            try {
+                ByteBuffer page = channel.map(FileChannel.MapMode.READ_WRITE, size, length);
+                size += length;
+                return page;
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Failed to map scratch page", ioe);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+                // Nothing we can do about it
+            }
+        }
+    }
+
+    private ByteBuffer allocatePage(int length) {
+        return null != scratch ? scratch.map(length) : ByteBuffer.allocateDirect(length);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isFull() {
+        return size >= MAX_NODES;
+    }
+
+    private ByteBuffer nodePage(int node) {
+        return nodePages[node / NODES_PER_PAGE];
+    }
+
+    private static int offset(int node) {
+        return (node % NODES_PER_PAGE) * RECORD_SIZE;
+    }
+
+    @Override
+    protected int addNode(int parent, int previousSibling, int level, int xref, int dataXref, int tag, CharSequence data, int start, int end) {
+        int pageIndex = size / NODES_PER_PAGE;
+        if (pageIndex == nodePages.length) {
+            nodePages = Arrays.copyOf(nodePages, 2 * pageIndex);
+        }
+        if (null == nodePages[pageIndex]) {
+            nodePages[pageIndex] = allocatePage(PAGE_SIZE);
+        }
+        final int node = size++;
+        final ByteBuffer page = nodePages[pageIndex];
+        final int offset = offset(node);
+
+        page.putInt(offset + LEVEL, level);
+        page.putInt(offset + TAG, tag);
+        page.putInt(offset + PARENT, parent);
+        page.putInt(offset + FIRST_CHILD, NONE);
+        page.putInt(offset + NEXT_SIBLING, NONE);
+
+        page.putInt(offset + XREF, xref);
+        page.putInt(offset + DATA_XREF, dataXref);
+
+        int length = 0;
+        long address = 0L;
+        if (null != data) {
+            length = encodedLength(data, start, end);
+            address = reserve(length);
+            encode(data, start, end, dataPages[dataPageCount - 1], dataPosition);
+            dataPosition += length;
+        }
+        page.putLong(offset + DATA_ADDRESS, address);
+        page.putInt(offset + DATA_LENGTH, length);
+
+        if (parent != NONE) {
+            if (previousSibling == NONE) {
+                nodePage(parent).putInt(offset(parent) + FIRST_CHILD, node);
+            } else {
+                nodePage(previousSibling).putInt(offset(previousSibling) + NEXT_SIBLING, node);
+            }
+        }
+        return node;
+    }
+
+    @Override
+    protected void appendNodeData(int node, CharSequence data) {
+        if (null == data) {
+            return;
+        }
+        if (node != size - 1) {
+            throw new IllegalStateException("Can only append data to last node (" + (size - 1) + "), not " + node);
+        }
+        final ByteBuffer page = nodePage(node);
+        final int offset = offset(node);
+
+        int start = trimStart(data, 0, data.length());
+        int end = trimEnd(data, start, data.length());
+        int length = page.getInt(offset + DATA_LENGTH);
+        int appended = 1 + encodedLength(data, start, end);
+
+        long address = page.getLong(offset + DATA_ADDRESS);
+        boolean isAtEnd = length > 0
+                && (int) (address >>> 32) == dataPageCount - 1 && (int) address + length == dataPosition;
+        if (!isAtEnd || dataPosition + appended > dataPages[dataPageCount - 1].capacity()) {
+            // Move existing data to a new location with room for appended data
+            byte[] existing = new byte[length];
+            if (length > 0) {
+                dataPages[(int) (address >>> 32)].get((int) address, existing);
+            }
+            address = reserve(length + appended);
+            dataPages[dataPageCount - 1].put(dataPosition, existing);
+            dataPosition += length;
+            page.putLong(offset + DATA_ADDRESS, address);
+        }
+
+        ByteBuffer to = dataPages[dataPageCount - 1];
+        to.put(dataPosition, (byte) '\n');
+        encode(data, start, end, to, dataPosition + 1);
+        dataPosition += appended;
+        page.putInt(offset + DATA_LENGTH, length + appended);
+    }
+
+    /**
+     * Makes room for 'length' bytes in current data page, moving on to a new page if necessary.
+     * @return address of reserved room
+     */
+    private long reserve(int length) {
+        if (dataPageCount == 0 || dataPosition + length > dataPages[dataPageCount - 1].capacity()) {
+            if (dataPageCount == dataPages.length) {
+                dataPages = Arrays.copyOf(dataPages, 2 * dataPageCount);
+            }
+            dataPages[dataPageCount++] = allocatePage(Math.max(PAGE_SIZE, length));
+            dataPosition = 0;
+        }
+        return ((long) (dataPageCount - 1) << 32) | dataPosition;
+    }
+
+    private static int encodedLength(CharSequence chars, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1; // unpaired surrogate, replaced by '?'
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void encode(CharSequence chars, int start, int end, ByteBuffer to, int position) {
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                to.put(position++, (byte) c);
+            } else if (c < 0x800) {
+                to.put(position++, (byte) (0xc0 | (c >> 6)));
+                to.put(position++, (byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, chars.charAt(++i));
+                to.put(position++, (byte) (0xf0 | (cp >> 18)));
+                to.put(position++, (byte) (0x80 | ((cp >> 12) & 0x3f)));
+                to.put(position++, (byte) (0x80 | ((cp >> 6) & 0x3f)));
+                to.put(position++, (byte) (0x80 | (cp & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                to.put(position++, (byte) '?'); // same replacement as String.getBytes()
+            } else {
+                to.put(position++, (byte) (0xe0 | (c >> 12)));
+                to.put(position++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+                to.put(position++, (byte) (0x80 | (c & 0x3f)));
+            }
+        }
+    }
+
+    private String decode(long address, int length) {
+        byte[] bytes = ValuePool.isPooled(length) ? ValuePool.buffer() : new byte[length];
+        dataPages[(int) (address >>> 32)].get((int) address, bytes, 0, length);
+        return values.get(bytes, length);
+    }
+
+    @Override
+    public int getLevel(int node) {
+        return nodePage(node).getInt(offset(node) + LEVEL);
+    }
+
+    @Override
+    public int getTag(int node) {
+        return nodePage(node).getInt(offset(node) + TAG);
+    }
+
+    @Override
+    public int getParent(int node) {
+        return nodePage(node).getInt(offset(node) + PARENT);
+    }
+
+    @Override
+    public int getFirstChild(int node) {
+        return nodePage(node).getInt(offset(node) + FIRST_CHILD);
+    }
+
+    @Override
+    public int getNextSibling(int node) {
+        return nodePage(node).getInt(offset(node) + NEXT_SIBLING);
+    }
+
+    @Override
+    public int getXref(int node) {
+        return nodePage(node).getInt(offset(node) + XREF);
+    }
+
+    @Override
+    public int getDataXref(int node) {
+        return nodePage(node).getInt(offset(node) + DATA_XREF);
+    }
+
+    @Override
+    public boolean hasData(int node) {
+        return nodePage(node).getInt(offset(node) + DATA_LENGTH) > 0;
+    }
+
+    @Override
+    public String getData(int node) {
+        ByteBuffer page = nodePage(node);
+        int offset = offset(node);
+        return decode(page.getLong(offset + DATA_ADDRESS), page.getInt(offset + DATA_LENGTH));
+    }
+
+    @Override
+    public void appendData(int node, StringBuffer buf) {
+        buf.append(getData(node));
+    }
+}
@@ -0,0 +1,236 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of places, where each place (PLAC) is split into its (comma separated) levels,
+ * which are interned into a trie from the most general level, e.g.
+ * <pre>
+ * 2 PLAC Alstahaug, Nordland, Norge
+ * </pre>
+ * becomes "Norge" &rarr; "Nordland" &rarr; "Alstahaug". Each level of each place is a {@link Place}
+ * with an integer id, so that events may keep the id of their place (rather than the place name)
+ * and places may be compared, grouped and indexed by id. A place is within another place if the
+ * other place is one of its ancestors, e.g. "Alstahaug, Nordland, Norge" is within "Nordland, Norge".
+ * <p/>
+ * Levels are trimmed, empty levels (e.g. of "Alstahaug,, Norge" or "Alstahaug, Norge,") are
+ * skipped, and the full name of a place is its levels joined by ", ". Places are otherwise kept
+ * as given, i.e. "Nordland" and "NORDLAND" are different places, although they are both found
+ * by {@link #find(String)}.
+ * <p/>
+ * Places are registered per load, along with xrefs (see {@link XrefTable#getPlaces()}), so
+ * a registry lives as long as the records loaded.
+ * <p/>
+ * A registry may be used by many threads at once. Places are looked up without locking, and
+ * are only added under lock.
+ */
+public final class PlaceRegistry {
+
+    /**
+     * Id of no place, i.e. an empty PLAC
+     */
+    public static final int NONE = 0;
+
+    /**
+     * A level of a place, e.g. "Nordland" in "Alstahaug, Nordland, Norge"
+     */
+    public static final class Place {
+        final int id;
+        final String name;
+        final String fullName;
+        final Place parent; // or null for the root
+        final int depth;
+        private final Map</* name */ String, Place> children = new ConcurrentHashMap<>();
+
+        private Place(int id, String name, Place parent) {
+            this.id = id;
+            this.name = name;
+            this.parent = parent;
+            if (null == parent) {
+                depth = 0;
+                fullName = "";
+            } else {
+                depth = parent.depth + 1;
+                fullName = parent.depth == 0 ? name : name + ", " + parent.fullName;
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Name of this level, e.g. "Nordland"
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Name of place, e.g. "Nordland, Norge"
+         */
+        public String getFullName() {
+            return fullName;
+        }
+
+        /**
+         * The enclosing place, if this is not the most general level
+         */
+        public Optional<Place> getParent() {
+            return null != parent && parent.depth > 0 ? Optional.of(parent) : Optional.empty();
+        }
+
+        /**
+         * Level of place, where the most general level (e.g. country) is 1
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public Collection<Place> getChildren() {
+            return Collections.unmodifiableCollection(children.values());
+        }
+
+        /**
+         * Whether this place is 'other' or within 'other'
+         */
+        public boolean isWithin(Place other) {
+            if (other.depth == 0) {
+                return this == other;
+            }
+            for (Place place = this; null != place && place.depth >= other.depth; place = place.parent) {
+                if (place == other) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return fullName;
+        }
+    }
+
+    private final Place root = new Place(NONE, "", null);
+
+    // Places by id, where ids are handed out in sequence
+    private volatile Place[] places = { root };
+    private int size = 1; // guarded by this
+
+    // Place ids of PLAC values seen, as given
+    private final Map</* PLAC */ String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Places by name of level, in lower case
+    private final Map</* name */ String, Collection<Place>> byName = new ConcurrentHashMap<>();
+
+    /**
+     * @return id of place, adding all levels of place not already registered, or {@link #NONE}
+     * if place is empty (or only has empty levels)
+     */
+    public int intern(String place) {
+        if (null == place || place.isBlank()) {
+            return NONE;
+        }
+        Integer id = ids.get(place);
+        if (null != id) {
+            return id;
+        }
+        synchronized (this) {
+            String[] levels = place.split(",", -1);
+            Place node = root;
+            for (int i = levels.length - 1; i >= 0; i--) {
+                String name = levels[i].trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Place child = node.children.get(name);
+                if (null == child) {
+                    child = add(name, node);
+                }
+                node = child;
+            }
+            ids.put(place, node.id);
+            return node.id;
+        }
+    }
+
+    // Called under lock
+    private Place add(String name, Place parent) {
+        Place[] _places = places;
+        if (size == _places.length) {
+            _places = Arrays.copyOf(_places, 2 * size);
+        }
+        Place place = new Place(size, name, parent);
+        _places[size++] = place;
+        places = _places;
+
+        // Published after it is in 'places', so that its id may be looked up
+        byName.computeIfAbsent(name.toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(place);
+        parent.children.put(name, place);
+        return place;
+    }
+
+    /**
+     * Place of id, as returned by {@link #intern(String)}
+     */
+    public Place get(int id) {
+        Place[] _places = places;
+        if (id < 0 || id >= _places.length || null == _places[id]) {
+            throw new IllegalArgumentException("Unknown place: " + id);
+        }
+        return _places[id];
+    }
+
+    /**
+     * Full name of place, i.e. levels joined by ", ", or "" for {@link #NONE}
+     */
+    public String getFullName(int id) {
+        return get(id).fullName;
+    }
+
+    /**
+     * Whether place 'id' is 'other' or within 'other'
+     */
+    public boolean isWithin(int id, int other) {
+        return get(id).isWithin(get(other));
+    }
+
+    /**
+     * Places with a level named 'name' (ignoring case), e.g. all places named "Nordland",
+     * which may be found in different places of the hierarchy
+     */
+    public Collection<Place> find(String name) {
+        Collection<Place> found = byName.get(name.trim().toLowerCase(Locale.ROOT));
+        if (null == found) {
+            return List.of();
+        }
+        synchronized (this) {
+            return List.copyOf(found);
+        }
+    }
+
+    /**
+     * Forgets all places but {@link #NONE}, see {@link XrefTable#clear()}
+     */
+    synchronized void clear() {
+        ids.clear();
+        byName.clear();
+        root.children.clear();
+        Arrays.fill(places, 1, size, null);
+        size = 1;
+    }
+
+    /**
+     * Number of places, including {@link #NONE}, so that ids are in [0, size)
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d places from %d distinct values", size() - 1, ids.size());
+    }
+}
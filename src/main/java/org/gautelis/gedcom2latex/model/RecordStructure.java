@@ -0,0 +1,44 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.function.Function;
+
+/**
+ * A level 0 record (e.g. INDI or FAM) as kept in the index of a loaded GEDCOM file.
+ * <p/>
+ * Unlike other structures, which are lightweight views created as needed, a record
+ * is kept for as long as the file is loaded, and so it also keeps the record that
+ * wraps it (see {@link #getRecord(Class, Function)}).
+ */
+public final class RecordStructure extends Structure {
+
+    // Wrapper of this record, e.g. INDI, created once (see getRecord)
+    private volatile Record record = null;
+
+    public RecordStructure(StructureStore store, int node) {
+        super(store, node);
+    }
+
+    /**
+     * Gets the record (e.g. {@link org.gautelis.gedcom2latex.model.gedcom.INDI}) wrapping
+     * this structure, creating it the first time it is asked for. Hence a record has at most
+     * one wrapper (of a given type).
+     * <p/>
+     * May be called from many threads at once, in which case a record may (rarely) be created
+     * more than once, but only one of them is kept and returned.
+     */
+    @Override
+    public <R extends Record> R getRecord(Class<R> type, Function<Structure, R> wrapper) {
+        Record _record = record;
+        if (type.isInstance(_record)) {
+            return type.cast(_record);
+        }
+        R created = wrapper.apply(this);
+        synchronized (this) {
+            if (type.isInstance(record)) {
+                return type.cast(record);
+            }
+            record = created;
+        }
+        return created;
+    }
+}
@@ -0,0 +1,416 @@
+package org.gautelis.gedcom2latex.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * On-disk snapshot of a parsed GEDCOM file, i.e. all records, the xref table and
+ * the tag table, so that a GEDCOM file need not be parsed again as long as it is
+ * unchanged.
+ * <p/>
+ * A snapshot is kept next to the GEDCOM file (see {@link #pathOf(Path)}) and is keyed
+ * on size and modification time of the GEDCOM file, as well as on a 'variant' that describes
+ * how the GEDCOM file was loaded (e.g. which lines were kept). It is opened by memory mapping
+ * it into a {@link MappedStructureStore}.
+ * <p/>
+ * File layout:
+ * <pre>
+ *   header    magic, version, size and modification time of GEDCOM file, node count,
+ *             offset and length of data, offset of tables
+ *   nodes     node records, see {@link MappedStructureStore}
+ *   data      UTF-8 encoded data, in pages
+ *   tables    variant, tag names, xrefs, and top-level records grouped by tag
+ * </pre>
+ * Records are written one at a time, each record occupying a contiguous range of nodes.
+ */
+public final class Snapshot {
+    private static final Logger log = LoggerFactory.getLogger(Snapshot.class);
+
+    private static final int MAGIC = 0x47324c53; // "G2LS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Location of snapshot for a GEDCOM file, e.g. "family.ged.snapshot" for "family.ged"
+     */
+    public static Path pathOf(Path gedcomFile) {
+        return gedcomFile.resolveSibling(gedcomFile.getFileName() + ".snapshot");
+    }
+
+    /**
+     * Loads records from snapshot of 'gedcomFile', if such a snapshot exists and is up-to-date.
+     * @param variant describes how GEDCOM file is loaded, must match that of snapshot
+     * @param xrefs where xrefs from snapshot are registered
+     * @param index where records are indexed on ID
+     * @param structures where records are indexed on tag
+     * @return true if records were loaded, false if there is no (up-to-date) snapshot
+     */
+    public static boolean load(
+            final Path gedcomFile, final String variant, final XrefTable xrefs,
+            final Map</* id */ String, Structure> index,
+            final Map</* tag */ String, Collection<Structure>> structures
+    ) throws IOException {
+        Path file = pathOf(gedcomFile);
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        BasicFileAttributes source = Files.readAttributes(gedcomFile, BasicFileAttributes.class);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+                // Keep reading
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != source.size() || header.getLong() != source.lastModifiedTime().toMillis()) {
+                log.debug("Snapshot {} is stale", file);
+                return false;
+            }
+            final int nodeCount = header.getInt();
+            final long dataOffset = header.getLong();
+            final long dataLength = header.getLong();
+            final long tablesOffset = header.getLong();
+
+            // Tables
+            int[] tags;
+            int[] refs;
+            Map<String, int[]> records = new LinkedHashMap<>();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(tablesOffset))));
+
+            if (!in.readUTF().equals(variant)) {
+                log.debug("Snapshot {} is of another variant", file);
+                return false;
+            }
+
+            int tagCount = in.readInt();
+            tags = new int[tagCount];
+            boolean isIdentical = true;
+            for (int i = 0; i < tagCount; i++) {
+                tags[i] = Tag.intern(in.readUTF());
+                isIdentical &= tags[i] == i;
+            }
+            if (isIdentical) {
+                tags = null;
+            }
+
+            int xrefCount = in.readInt();
+            refs = new int[xrefCount];
+            isIdentical = true;
+            for (int i = 0; i < xrefCount; i++) {
+                refs[i] = xrefs.intern(in.readUTF());
+                isIdentical &= refs[i] == i;
+            }
+            if (isIdentical) {
+                refs = null;
+            }
+
+            int groupCount = in.readInt();
+            for (int i = 0; i < groupCount; i++) {
+                String tag = in.readUTF();
+                int[] nodes = new int[in.readInt()];
+                for (int j = 0; j < nodes.length; j++) {
+                    nodes[j] = in.readInt();
+                }
+                records.put(tag, nodes);
+            }
+
+            // Nodes and data
+            final long nodesPerPage = MappedStructureStore.NODES_PER_PAGE;
+            ByteBuffer[] nodePages = new ByteBuffer[(int) ((nodeCount + nodesPerPage - 1) / nodesPerPage)];
+            for (int i = 0; i < nodePages.length; i++) {
+                long first = i * nodesPerPage;
+                long count = Math.min(nodesPerPage, nodeCount - first);
+                nodePages[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * MappedStructureStore.RECORD_SIZE, count * MappedStructureStore.RECORD_SIZE);
+            }
+
+            final long pageSize = MappedStructureStore.PAGE_SIZE;
+            ByteBuffer[] dataPages = new ByteBuffer[(int) ((dataLength + pageSize - 1) / pageSize)];
+            for (int i = 0; i < dataPages.length; i++) {
+                long start = i * pageSize;
+                dataPages[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        dataOffset + start, Math.min(pageSize, dataLength - start));
+            }
+
+            StructureStore store = new MappedStructureStore(xrefs, nodeCount, nodePages, dataPages, tags, refs);
+            records.forEach((tag, nodes) -> {
+                Collection<Structure> tagged = structures.computeIfAbsent(tag, k -> new ArrayList<>());
+                for (int node : nodes) {
+                    Structure record = new RecordStructure(store, node);
+                    tagged.add(record);
+                    record.getPointer().ifPresent(id -> index.put(id, record));
+                }
+            });
+            log.debug("Loaded {} nodes from snapshot {}", nodeCount, file);
+            return true;
+        }
+    }
+
+    /**
+     * Writes snapshot of records loaded from 'gedcomFile'. The snapshot is written to a temporary
+     * file that subsequently replaces any existing snapshot, so readers never see a partial snapshot.
+     * @param variant describes how GEDCOM file was loaded
+     */
+    public static void write(
+            final Path gedcomFile, final String variant, final XrefTable xrefs,
+            final Map</* tag */ String, Collection<Structure>> structures
+    ) throws IOException {
+        BasicFileAttributes source = Files.readAttributes(gedcomFile, BasicFileAttributes.class);
+        Path file = pathOf(gedcomFile).toAbsolutePath();
+
+        // Size of node region must be known up front
+        long nodeCount = 0L;
+        for (Collection<Structure> tagged : structures.values()) {
+            for (Structure record : tagged) {
+                nodeCount += count(record.getStore(), record.getNode());
+            }
+        }
+        if (nodeCount > Integer.MAX_VALUE) {
+            throw new IOException("Too many lines for a snapshot: " + nodeCount);
+        }
+        final long dataOffset = HEADER_SIZE + nodeCount * MappedStructureStore.RECORD_SIZE;
+
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Region nodes = new Region(channel, HEADER_SIZE);
+                Region data = new Region(channel, dataOffset);
+                Copier copier = new Copier(nodes, data);
+
+                Map<String, int[]> records = new LinkedHashMap<>();
+                for (Map.Entry<String, Collection<Structure>> entry : structures.entrySet()) {
+                    int[] roots = new int[entry.getValue().size()];
+                    int i = 0;
+                    for (Structure record : entry.getValue()) {
+                        roots[i++] = copier.copy(record.getStore(), record.getNode());
+                    }
+                    records.put(entry.getKey(), roots);
+                }
+                nodes.flush();
+                data.flush();
+
+                final long dataLength = data.position() - dataOffset;
+                final long tablesOffset = data.position();
+
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel.position(tablesOffset))));
+                out.writeUTF(variant);
+                int tagCount = Tag.count();
+                out.writeInt(tagCount);
+                for (int i = 0; i < tagCount; i++) {
+                    out.writeUTF(Tag.name(i));
+                }
+                int xrefCount = xrefs.size();
+                out.writeInt(xrefCount);
+                for (int i = 0; i < xrefCount; i++) {
+                    out.writeUTF(xrefs.name(i));
+                }
+                out.writeInt(records.size());
+                for (Map.Entry<String, int[]> entry : records.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(entry.getValue().length);
+                    for (int root : entry.getValue()) {
+                        out.writeInt(root);
+                    }
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION);
+                header.putLong(source.size()).putLong(source.lastModifiedTime().toMillis());
+                header.putInt((int) nodeCount).putLong(dataOffset).putLong(dataLength).putLong(tablesOffset);
+                header.clear();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            log.debug("Wrote {} nodes to snapshot {}", nodeCount, file);
+
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static long count(StructureStore store, int node) {
+        long count = 1L;
+        for (int child = store.getFirstChild(node); child != StructureStore.NONE; child = store.getNextSibling(child)) {
+            count += count(store, child);
+        }
+        return count;
+    }
+
+    /**
+     * Buffered, sequential writing to a region of a file.
+     */
+    private static final class Region {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position; // of start of buffer
+
+        private Region(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        private long position() {
+            return position + buffer.position();
+        }
+
+        private ByteBuffer reserve(int length) throws IOException {
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            return buffer;
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    position += channel.write(wrapped, position);
+                }
+            } else {
+                reserve(bytes.length).put(bytes);
+            }
+        }
+
+        private void skip(long length) throws IOException {
+            flush();
+            position += length;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Copies records, renumbering nodes (in document order) as they are written.
+     */
+    private static final class Copier {
+        private final Region nodes;
+        private final Region data;
+        private final long dataStart;
+        private int next = 0; // next node in snapshot
+
+        // Nodes of current record
+        private int count = 0;
+        private int[] sources = new int[64];
+        private int[] parents = new int[64];
+        private int[] firstChildren = new int[64];
+        private int[] nextSiblings = new int[64];
+        private int[] lastChildren = new int[64];
+
+        private Copier(Region nodes, Region data) {
+            this.nodes = nodes;
+            this.data = data;
+            this.dataStart = data.position();
+        }
+
+        /**
+         * @return node of copied record in snapshot
+         */
+        private int copy(StructureStore store, int record) throws IOException {
+            count = 0;
+            collect(store, record, StructureStore.NONE);
+
+            final int base = next;
+            for (int i = 0; i < count; i++) {
+                int node = sources[i];
+                byte[] bytes = store.hasData(node) ? store.getData(node).getBytes(StandardCharsets.UTF_8) : null;
+                long address = null != bytes ? place(bytes) : 0L;
+
+                ByteBuffer buffer = nodes.reserve(MappedStructureStore.RECORD_SIZE);
+                buffer.putInt(store.getLevel(node));
+                buffer.putInt(store.getTag(node));
+                buffer.putInt(parents[i] == StructureStore.NONE ? StructureStore.NONE : base + parents[i]);
+                buffer.putInt(firstChildren[i] == StructureStore.NONE ? StructureStore.NONE : base + firstChildren[i]);
+                buffer.putInt(nextSiblings[i] == StructureStore.NONE ? StructureStore.NONE : base + nextSiblings[i]);
+                buffer.putInt(store.getXref(node));
+                buffer.putInt(store.getDataXref(node));
+                buffer.putInt(null != bytes ? bytes.length : 0);
+                buffer.putLong(address);
+            }
+            next += count;
+            return base;
+        }
+
+        /**
+         * Collects nodes of record in document order, i.e. depth first.
+         */
+        private void collect(StructureStore store, int node, int parent) {
+            if (count == sources.length) {
+                sources = Arrays.copyOf(sources, 2 * count);
+                parents = Arrays.copyOf(parents, 2 * count);
+                firstChildren = Arrays.copyOf(firstChildren, 2 * count);
+                nextSiblings = Arrays.copyOf(nextSiblings, 2 * count);
+                lastChildren = Arrays.copyOf(lastChildren, 2 * count);
+            }
+            final int i = count++;
+            sources[i] = node;
+            parents[i] = parent;
+            firstChildren[i] = nextSiblings[i] = lastChildren[i] = StructureStore.NONE;
+            if (parent != StructureStore.NONE) {
+                if (lastChildren[parent] == StructureStore.NONE) {
+                    firstChildren[parent] = i;
+                } else {
+                    nextSiblings[lastChildren[parent]] = i;
+                }
+                lastChildren[parent] = i;
+            }
+
+            for (int child = store.getFirstChild(node); child != StructureStore.NONE; child = store.getNextSibling(child)) {
+                collect(store, child, i);
+            }
+        }
+
+        /**
+         * Writes data, so that it does not straddle two data pages.
+         * @return address of data, relative to start of data
+         */
+        private long place(byte[] bytes) throws IOException {
+            final int pageSize = MappedStructureStore.PAGE_SIZE;
+            if (bytes.length > pageSize) {
+                throw new IOException("Value too large for a snapshot: " + bytes.length + " bytes");
+            }
+            long address = data.position() - dataStart;
+            long room = pageSize - address % pageSize;
+            if (bytes.length > room) {
+                data.skip(room);
+                address += room;
+            }
+            data.put(bytes);
+            return address;
+        }
+    }
+}
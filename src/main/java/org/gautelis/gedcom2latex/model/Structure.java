@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -44,79 +45,180 @@ import java.util.stream.Collectors;
  * </pre>
  * In this case we will end up with a "HEAD" structure, which contains 12 sub-structures
  * corresponding to the level 1 records.
+ * <p/>
+ * A structure does not hold any data itself, but is a lightweight view onto a node
+ * in a {@link StructureStore}. Reading a structure never modifies it, so once the store
+ * is frozen structures may be read from many threads at once.
  */
 public class Structure {
     private static final Logger log = LoggerFactory.getLogger(Structure.class);
 
-    final long level;
-    final String pointer;
-    final String tag;
-    final Map<String, Collection<Structure>> structures = new HashMap<>();
-    final StringBuffer data = new StringBuffer();
+    final StructureStore store;
+    final int node;
 
-    public Structure(long level, String pointer, String tag) {
-        this.level = level;
-        this.pointer = pointer;
-        this.tag = tag;
+    /**
+     * Creates a view onto a node in a store.
+     */
+    public Structure(StructureStore store, int node) {
+        Objects.requireNonNull(store, "store");
+        this.store = store;
+        this.node = node;
     }
 
-    public Structure(long level, String pointer, String tag, String data) {
-        this.level = level;
-        this.pointer = pointer;
-        this.tag = tag;
-        if (null != data) {
-            this.data.append(data.trim());
-        }
+    /**
+     * For structures that are not (yet) backed by a store, such as {@link LazyStructure}.
+     * Such subclasses have to override all accessors.
+     */
+    protected Structure() {
+        this.store = null;
+        this.node = StructureStore.NONE;
     }
 
-    public void addStructure(Structure structure) {
-        log.trace("At {}, adding {}", this, structure);
-        Collection<Structure> taggedStructures = structures.computeIfAbsent(structure.tag, k -> new ArrayList<>());
-        taggedStructures.add(structure);
+    public StructureStore getStore() {
+        return store;
     }
 
-    public void appendData(String data) {
-        if (null != data) {
-            this.data.append("\n").append(data.trim());
-        }
+    /**
+     * Whether this is a record that is loaded on demand, and that may be evicted and loaded
+     * again (see {@link LazyStructure}). Wrappers of such a record (e.g. {@link INDI}) should not
+     * keep what they wrap from it, or the record would be kept even if evicted.
+     */
+    public boolean isLazy() {
+        return false;
+    }
+
+    public int getNode() {
+        return node;
     }
 
     public long getLevel() {
-        return level;
+        return store.getLevel(node);
     }
 
     public Optional<String> getPointer() {
-        return Optional.ofNullable(pointer);
+        return Optional.ofNullable(store.getPointer(node));
+    }
+
+    /**
+     * Id of pointer, see {@link XrefTable}
+     * @return id, or XrefTable.NONE if structure has no pointer
+     */
+    public int getXref() {
+        return store.getXref(node);
+    }
+
+    /**
+     * Id of pointer valued data, as in "1 FAMC @F1@", see {@link XrefTable}
+     * @return id, or XrefTable.NONE if data is not a pointer
+     */
+    public int getDataXref() {
+        return store.getDataXref(node);
     }
 
     public String getTag() {
-        return tag;
+        return Tag.name(store.getTag(node));
+    }
+
+    /**
+     * Tag code, see {@link Tag}
+     */
+    public int getTagCode() {
+        return store.getTag(node);
     }
 
     public Optional<String> getData() {
-        if (data.isEmpty()) {
+        if (!store.hasData(node)) {
             return Optional.empty();
         }
-        return Optional.of(data.toString());
+        return Optional.of(store.getData(node));
     }
 
     public String getData(String defaultValue) {
-        if (data.isEmpty()) {
+        if (!store.hasData(node)) {
             return defaultValue;
         }
-        return data.toString();
+        return store.getData(node);
+    }
+
+    /**
+     * Gets nested structures with given tag. Never modifies the structure, so this is safe
+     * to call from many threads once the store is frozen.
+     * @param tag a tag code, see {@link Tag}
+     * @return an unmodifiable collection, which is shared (and empty) if there are no such structures
+     */
+    public Collection<Structure> getNestedStructures(int tag) {
+        if (tag == Tag.NONE) {
+            return Collections.emptyList();
+        }
+
+        List<Structure> nested = null;
+        for (int child = store.getFirstChild(node); child != StructureStore.NONE; child = store.getNextSibling(child)) {
+            if (store.getTag(child) == tag) {
+                if (null == nested) {
+                    nested = new ArrayList<>(2);
+                }
+                nested.add(new Structure(store, child));
+            }
+        }
+        return null == nested ? Collections.emptyList() : Collections.unmodifiableList(nested);
+    }
+
+    public Collection<Structure> getNestedStructures(Tag tag) {
+        return getNestedStructures(tag.code());
     }
 
     public Collection<Structure> getNestedStructures(String tag) {
-        return structures.computeIfAbsent(tag, k -> new ArrayList<>());
+        return getNestedStructures(Tag.find(tag));
     }
 
-    public Optional<Structure> getNestedStructure(String tag) {
-        Collection<Structure> tags = getNestedStructures(tag);
-        if (tags.size() > 1) {
-            log.warn("Record has {} {}, but we expected 0..1 : {}", tags.size(), tag, this);
+    /**
+     * @param tag a tag code, see {@link Tag}
+     */
+    public Optional<Structure> getNestedStructure(int tag) {
+        if (tag == Tag.NONE) {
+            return Optional.empty();
+        }
+
+        int first = StructureStore.NONE;
+        int count = 0;
+        for (int child = store.getFirstChild(node); child != StructureStore.NONE; child = store.getNextSibling(child)) {
+            if (store.getTag(child) == tag) {
+                if (count++ == 0) {
+                    first = child;
+                }
+            }
         }
-        return tags.stream().findFirst();
+        if (count > 1) {
+            log.warn("Record has {} {}, but we expected 0..1 : {}", count, Tag.name(tag), this);
+        }
+        return first == StructureStore.NONE ? Optional.empty() : Optional.of(new Structure(store, first));
+    }
+
+    public Optional<Structure> getNestedStructure(Tag tag) {
+        return getNestedStructure(tag.code());
+    }
+
+    public Optional<Structure> getNestedStructure(String tag) {
+        return getNestedStructure(Tag.find(tag));
+    }
+
+    public Optional<String> getNestedData(Tag tag) {
+        Optional<Structure> structure = getNestedStructure(tag);
+        return structure.flatMap(Structure::getData);
+    }
+
+    public String getNestedData(Tag tag, String defaultValue) {
+        Optional<String> data = getNestedData(tag);
+        return data.orElse(defaultValue);
+    }
+
+    /**
+     * Id of pointer valued data of nested structure with given tag, see {@link XrefTable}
+     * @return id, or XrefTable.NONE if there is no such structure or data is not a pointer
+     */
+    public int getNestedDataXref(Tag tag) {
+        Optional<Structure> structure = getNestedStructure(tag);
+        return structure.map(Structure::getDataXref).orElse(XrefTable.NONE);
     }
 
     public Optional<String> getNestedData(String tag) {
@@ -129,6 +231,33 @@ public class Structure {
         return data.orElse(defaultValue);
     }
 
+    /**
+     * Gets a record (e.g. {@link INDI}) wrapping this structure. Only records kept in the
+     * index (see {@link RecordStructure}) keep their wrapper, so any other structure gets
+     * a new wrapper each time.
+     * @param type type of record
+     * @param wrapper creates record
+     */
+    public <R extends Record> R getRecord(Class<R> type, Function<Structure, R> wrapper) {
+        return wrapper.apply(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Structure other)) {
+            return false;
+        }
+        return store == other.store && node == other.node;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(store) + node;
+    }
+
     @Override
     public String toString() {
         StringBuffer buf = new StringBuffer();
@@ -139,41 +268,46 @@ public class Structure {
     public void deepToString(StringBuffer buf) {
         buf.append("[");
         addDetails(buf);
-        if (!structures.isEmpty()) {
+        int child = store.getFirstChild(node);
+        if (child != StructureStore.NONE) {
             buf.append(" {");
-            structures.values().forEach(taggedRecords -> taggedRecords.forEach(record -> record.deepToString(buf)));
+            for (; child != StructureStore.NONE; child = store.getNextSibling(child)) {
+                new Structure(store, child).deepToString(buf);
+            }
             buf.append("}");
         }
         buf.append("]");
     }
 
     private void addDetails(StringBuffer buf) {
-        buf.append(level);
+        buf.append(store.getLevel(node));
 
+        String pointer = store.getPointer(node);
         if (null != pointer && !pointer.isEmpty()) {
             buf.append(" ").append(pointer);
         }
 
-        buf.append(" ").append(tag);
+        buf.append(" ").append(getTag());
 
-        if (!data.isEmpty()) {
-            buf.append(" ").append(data.toString().trim());
+        if (store.hasData(node)) {
+            buf.append(" ");
+            store.appendData(node, buf);
         }
     }
 
     public static Optional<HEAD> getHEAD(Map</* tag/type */ String, Collection<Structure>> structures) {
-        Collection<Structure> heads = structures.get("HEAD");
+        Collection<Structure> heads = structures.get(Tag.HEAD.name());
         Optional<Structure> head = heads.stream().findFirst();
-        return head.map(HEAD::new);
+        return head.map(_head -> _head.getRecord(HEAD.class, HEAD::new));
     }
 
     public static Collection<INDI> getINDIs(Map</* tag/type */ String, Collection<Structure>> structures) {
-        Collection<Structure> individuals = structures.get("INDI");
-        return individuals.stream().map(INDI::new).collect(Collectors.toList());
+        Collection<Structure> individuals = structures.get(Tag.INDI.name());
+        return individuals.stream().map(INDI::of).collect(Collectors.toList());
     }
 
     public static Collection<FAM> getFAMs(Map</* tag/type */ String, Collection<Structure>> structures) {
-        Collection<Structure> families = structures.get("FAM");
-        return families.stream().map(FAM::new).collect(Collectors.toList());
+        Collection<Structure> families = structures.get(Tag.FAM.name());
+        return families.stream().map(FAM::of).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,83 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Objects;
+
+/**
+ * Compact storage of parsed GEDCOM lines.
+ * <p/>
+ * Each GEDCOM line is a node, identified by an int (its position in the store), with
+ * these properties:
+ * <pre>
+ *   level        level of line
+ *   tag          tag code, see {@link Tag}
+ *   parent       enclosing node, or NONE
+ *   firstChild   first nested node, or NONE
+ *   nextSibling  next node with same parent, or NONE
+ *   xref         id of pointer (e.g. "@I1@"), or NONE, see {@link XrefTable}
+ *   dataXref     id of pointer valued data (e.g. "@F1@" in "1 FAMC @F1@"), or NONE
+ *   data         data of line (including continuation lines)
+ * </pre>
+ * {@link Structure} is a lightweight view onto a node in a store.
+ * <p/>
+ * A store is read-only, and may be read from any number of threads. Stores into which lines
+ * are parsed are {@link WritableStructureStore}s, which are read-only once frozen.
+ *
+ * @see HeapStructureStore
+ * @see OffHeapStructureStore
+ * @see MappedStructureStore
+ */
+public abstract class StructureStore {
+    public static final int NONE = -1;
+
+    protected final XrefTable xrefs;
+
+    // Shares short data values, see getData()
+    protected final ValuePool values = ValuePool.SHARED;
+
+    protected StructureStore(XrefTable xrefs) {
+        Objects.requireNonNull(xrefs, "xrefs");
+        this.xrefs = xrefs;
+    }
+
+    public XrefTable getXrefs() {
+        return xrefs;
+    }
+
+    /**
+     * Number of nodes in store
+     */
+    public abstract int size();
+
+    public abstract int getLevel(int node);
+
+    public abstract int getTag(int node);
+
+    public abstract int getParent(int node);
+
+    public abstract int getFirstChild(int node);
+
+    public abstract int getNextSibling(int node);
+
+    /**
+     * Id of pointer, or NONE
+     */
+    public abstract int getXref(int node);
+
+    /**
+     * Id of pointer valued data, or NONE
+     */
+    public abstract int getDataXref(int node);
+
+    public String getPointer(int node) {
+        return xrefs.name(getXref(node));
+    }
+
+    public abstract boolean hasData(int node);
+
+    /**
+     * Data of node, where short values are shared with identical values (see {@link ValuePool}).
+     */
+    public abstract String getData(int node);
+
+    public abstract void appendData(int node, StringBuffer buf);
+}
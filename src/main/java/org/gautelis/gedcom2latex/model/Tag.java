@@ -0,0 +1,163 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Arrays;
+
+/**
+ * GEDCOM 5.5.1 tags, with a registry that maps tags to small integer codes.
+ * <p/>
+ * Known tags have codes corresponding to their ordinal, i.e. {@link #code()}. Any other
+ * tag encountered (typically custom tags such as _FILESIZE or _PRIM) is registered
+ * on the fly and assigned the next free code. Codes are only valid within the
+ * running process.
+ * <p/>
+ * Looking up a tag does not allocate nor lock, so this may be used while parsing
+ * on many threads at once.
+ */
+public enum Tag {
+    ABBR, ADDR, ADR1, ADR2, ADOP, AFN, AGE, AGNC, ALIA, ANCE, ANCI, ANUL, ASSO, AUTH,
+    BAPL, BAPM, BARM, BASM, BIRT, BLES, BURI,
+    CALN, CAST, CAUS, CENS, CHAN, CHAR, CHIL, CHR, CHRA, CITY, CONC, CONF, CONL, CONT, COPR, CORP, CREM, CTRY,
+    DATA, DATE, DEAT, DESC, DESI, DEST, DIV, DIVF, DSCR,
+    EDUC, EMAIL, EMIG, ENDL, ENGA, EVEN,
+    FACT, FAM, FAMC, FAMF, FAMS, FAX, FCOM, FILE, FONE, FORM,
+    GEDC, GIVN, GRAD,
+    HEAD, HUSB,
+    IDNO, IMMI, INDI,
+    LANG, LATI, LEGA, LONG,
+    MAP, MARB, MARC, MARL, MARR, MARS, MEDI,
+    NAME, NATI, NATU, NCHI, NICK, NMR, NOTE, NPFX, NSFX,
+    OBJE, OCCU, ORDI, ORDN,
+    PAGE, PEDI, PHON, PLAC, POST, PROB, PROP, PUBL,
+    QUAY,
+    REFN, RELA, RELI, REPO, RESI, RESN, RETI, RFN, RIN, ROLE, ROMN,
+    SEX, SLGC, SLGS, SOUR, SPFX, SSN, STAE, STAT, SUBM, SUBN, SURN,
+    TEMP, TEXT, TIME, TITL, TRLR, TYPE,
+    VERS,
+    WIFE, WILL, WWW;
+
+    public static final int NONE = -1;
+
+    private static final Tag[] KNOWN = values();
+
+    /**
+     * Immutable open addressing table of tag names. Registering a new tag
+     * replaces the table (copy on write).
+     */
+    private static final class Table {
+        private final String[] names; // indexed by code
+        private final int[] slots; // code, or NONE
+
+        private Table(String[] names) {
+            this.names = names;
+            int capacity = Integer.highestOneBit(Math.max(4 * names.length, 16));
+            slots = new int[capacity];
+            Arrays.fill(slots, NONE);
+            int mask = capacity - 1;
+            for (int code = 0; code < names.length; code++) {
+                int slot = mix(names[code].hashCode()) & mask;
+                while (slots[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = code;
+            }
+        }
+
+        private int find(CharSequence chars, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + chars.charAt(i);
+            }
+
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            int code;
+            while ((code = slots[slot]) != NONE) {
+                String name = names[code];
+                if (name.length() == end - start && regionMatches(name, chars, start)) {
+                    return code;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NONE;
+        }
+    }
+
+    private static volatile Table table = new Table(Arrays.stream(KNOWN).map(Enum::name).toArray(String[]::new));
+
+    /**
+     * Code of this tag.
+     */
+    public int code() {
+        return ordinal();
+    }
+
+    /**
+     * Maps the tag in chars[start, end) to its code, registering tag if it is not previously known.
+     */
+    public static int intern(CharSequence chars, int start, int end) {
+        int code = table.find(chars, start, end);
+        if (code != NONE) {
+            return code;
+        }
+        return register(chars.subSequence(start, end).toString());
+    }
+
+    public static int intern(String tag) {
+        return intern(tag, 0, tag.length());
+    }
+
+    /**
+     * Finds code of a tag, without registering it.
+     * @return code of tag or NONE if tag has never been encountered
+     */
+    public static int find(String tag) {
+        return table.find(tag, 0, tag.length());
+    }
+
+    /**
+     * Name of tag with given code
+     */
+    public static String name(int code) {
+        return table.names[code];
+    }
+
+    /**
+     * Known tag with given code
+     * @return tag, or null if code is for a custom tag
+     */
+    public static Tag of(int code) {
+        return code >= 0 && code < KNOWN.length ? KNOWN[code] : null;
+    }
+
+    /**
+     * Number of tags currently registered (known as well as custom)
+     */
+    public static int count() {
+        return table.names.length;
+    }
+
+    private static synchronized int register(String tag) {
+        Table current = table;
+        int code = current.find(tag, 0, tag.length());
+        if (code == NONE) {
+            String[] names = Arrays.copyOf(current.names, current.names.length + 1);
+            code = current.names.length;
+            names[code] = tag;
+            table = new Table(names);
+        }
+        return code;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean regionMatches(String name, CharSequence chars, int start) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
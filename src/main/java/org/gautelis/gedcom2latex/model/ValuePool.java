@@ -0,0 +1,177 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of short data values, so that values that are repeated throughout a file
+ * (e.g. places, given names and surnames, source titles, date qualifiers) share one
+ * String rather than having one String per occurrence.
+ * <p/>
+ * The pool is a fixed size table, where each value hashes into one slot. A value found
+ * in its slot is shared, whereas a value not found replaces whatever was in the slot.
+ * Hence the pool is bounded, favours frequent values, and does not need locking. Values
+ * are looked up straight from stored chars (or UTF-8 encoded bytes), so a value found in
+ * the pool is not copied nor decoded.
+ * <p/>
+ * Values are pooled when they are read (see {@link StructureStore#getData(int)}), not when
+ * they are stored, so stores still hold every occurrence of a value. What the pool saves is
+ * the String that would otherwise be created (and possibly retained) for each read, which is
+ * what its counters measure: lookups served from the pool, and chars served rather than allocated.
+ * <p/>
+ * A pool may be used by many threads at once. Strings are immutable, so reading a slot
+ * without synchronization is safe; at worst a value is not found and is created again.
+ */
+public final class ValuePool {
+
+    // Longer values are seldom repeated
+    public static final int MAX_LENGTH = 64;
+
+    /**
+     * Pool used by stores, see {@link StructureStore#getData(int)}
+     */
+    public static final ValuePool SHARED = new ValuePool(1 << 16);
+
+    // Value looked up from UTF-8 encoded bytes
+    private record Encoded(byte[] bytes, String value) {}
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[MAX_LENGTH]);
+
+    private final String[] values;
+    private final Encoded[] encoded;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder servedChars = new LongAdder();
+
+    /**
+     * @param size number of slots, rounded up to a power of two
+     */
+    public ValuePool(int size) {
+        if (size < 1 || size > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid pool size: " + size);
+        }
+        int slots = Integer.highestOneBit(size);
+        if (slots < size) {
+            slots <<= 1;
+        }
+        this.values = new String[slots];
+        this.encoded = new Encoded[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Determines whether a value of this length is pooled
+     */
+    public static boolean isPooled(int length) {
+        return length > 0 && length <= MAX_LENGTH;
+    }
+
+    /**
+     * @return value of chars[start, end), shared with any identical value in the pool
+     */
+    public String get(char[] chars, int start, int end) {
+        int length = end - start;
+        if (!isPooled(length)) {
+            return new String(chars, start, length);
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = spread(hash) & mask;
+
+        String value = values[slot];
+        if (null != value && value.length() == length && value.hashCode() == hash && equals(value, chars, start)) {
+            hit(length);
+            return value;
+        }
+        value = new String(chars, start, length);
+        values[slot] = value;
+        misses.increment();
+        return value;
+    }
+
+    /**
+     * A per thread buffer of {@link #MAX_LENGTH} bytes, into which encoded values may be read
+     * before they are looked up (since they are copied if they are not found).
+     */
+    public static byte[] buffer() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * @return value of UTF-8 encoded bytes[0, length), shared with any identical value in the pool
+     */
+    public String get(byte[] bytes, int length) {
+        if (!isPooled(length)) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = spread(hash) & mask;
+
+        Encoded entry = encoded[slot];
+        if (null != entry && Arrays.equals(entry.bytes(), 0, entry.bytes().length, bytes, 0, length)) {
+            hit(entry.value().length());
+            return entry.value();
+        }
+        String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        encoded[slot] = new Encoded(Arrays.copyOf(bytes, length), value);
+        misses.increment();
+        return value;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String value, char[] chars, int start) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != chars[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void hit(int length) {
+        hits.increment();
+        servedChars.add(length);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Fraction of pooled values that were found in the pool, in [0, 1]
+     */
+    public double getHitRate() {
+        long _hits = hits.sum();
+        long lookups = _hits + misses.sum();
+        return lookups > 0 ? (double) _hits / lookups : 0.0;
+    }
+
+    /**
+     * Number of chars of values served from the pool, i.e. not allocated when read. Every lookup
+     * counts, so a value read many times is counted as many times.
+     */
+    public long getServedChars() {
+        return servedChars.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lookups served from pool, %d not (hit rate %.1f%%), %d chars served rather than allocated",
+                getHits(), getMisses(), 100.0 * getHitRate(), getServedChars());
+    }
+}
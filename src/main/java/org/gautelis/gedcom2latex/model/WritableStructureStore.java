@@ -0,0 +1,103 @@
+package org.gautelis.gedcom2latex.model;
+
+/**
+ * A store into which GEDCOM lines are parsed.
+ * <p/>
+ * Nodes are appended in document order, so data for continuation lines is always appended
+ * to the last node.
+ * <p/>
+ * Once loading is done, the store is frozen (see {@link #freeze()}), after which it is
+ * read-only and may be read from any number of threads.
+ */
+public abstract class WritableStructureStore extends StructureStore {
+
+    private volatile boolean frozen = false;
+
+    protected WritableStructureStore(XrefTable xrefs) {
+        super(xrefs);
+    }
+
+    /**
+     * Makes store read-only. Any thread that observes the store as frozen, will
+     * see the complete store.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Store is frozen");
+        }
+    }
+
+    /**
+     * Indicates whether this store is approaching its capacity, in which case
+     * callers should continue in a new store.
+     */
+    public abstract boolean isFull();
+
+    /**
+     * Appends a node to the store.
+     * @param parent enclosing node, or NONE for a top-level node
+     * @param previousSibling last node previously added to 'parent', or NONE if this is the first one
+     * @param level level of line
+     * @param xref id of pointer (e.g. "@I1@"), or NONE
+     * @param tag tag code, see {@link Tag}
+     * @param data data of line, from which data[start, end) is trimmed and stored (may be null)
+     * @return the new node
+     */
+    public final int add(int parent, int previousSibling, int level, int xref, int tag, CharSequence data, int start, int end) {
+        checkNotFrozen();
+
+        int dataXref = NONE;
+        if (null != data) {
+            start = trimStart(data, start, end);
+            end = trimEnd(data, start, end);
+            if (XrefTable.isPointer(data, start, end)) {
+                dataXref = xrefs.intern(data.subSequence(start, end).toString());
+            }
+        }
+        return addNode(parent, previousSibling, level, xref, dataXref, tag, data, start, end);
+    }
+
+    /**
+     * Appends a node to the store.
+     * @param data data of line, of which data[start, end) is stored as is (i.e. already trimmed)
+     */
+    protected abstract int addNode(int parent, int previousSibling, int level, int xref, int dataXref, int tag, CharSequence data, int start, int end);
+
+    /**
+     * Appends data (from a continuation line) to the last node in store, separated by a newline.
+     */
+    public final void appendData(int node, CharSequence data) {
+        checkNotFrozen();
+        appendNodeData(node, data);
+    }
+
+    protected abstract void appendNodeData(int node, CharSequence data);
+
+    /**
+     * Start of chars[start, end) after trimming, with same semantics as String.trim()
+     */
+    protected static int trimStart(CharSequence chars, int start, int end) {
+        while (start < end && chars.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * End of chars[start, end) after trimming, with same semantics as String.trim()
+     */
+    protected static int trimEnd(CharSequence chars, int start, int end) {
+        while (end > start && chars.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,35 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Arrays;
+
+/**
+ * An index keyed on xref ids (see {@link XrefTable}), backed by an array.
+ */
+public final class XrefIndex<T> {
+    private Object[] values;
+
+    public XrefIndex(int capacity) {
+        values = new Object[Math.max(capacity, 16)];
+    }
+
+    public void put(int xref, T value) {
+        if (xref < 0) {
+            throw new IllegalArgumentException("Invalid xref id: " + xref);
+        }
+        if (xref >= values.length) {
+            values = Arrays.copyOf(values, Math.max(xref + 1, 2 * values.length));
+        }
+        values[xref] = value;
+    }
+
+    /**
+     * @return value for xref, or null if there is no such value (or xref is NONE)
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int xref) {
+        if (xref < 0 || xref >= values.length) {
+            return null;
+        }
+        return (T) values[xref];
+    }
+}
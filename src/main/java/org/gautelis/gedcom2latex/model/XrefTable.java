@@ -0,0 +1,111 @@
+package org.gautelis.gedcom2latex.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps cross-reference identifiers (xrefs, such as "@I500003@") to dense integer ids,
+ * i.e. 0, 1, 2, ... in the order they are first encountered.
+ * <p/>
+ * Pointers as well as pointer valued data (e.g. HUSB, WIFE, CHIL, FAMC, FAMS) are
+ * mapped at parse time, so that records may thereafter be linked by indexing into
+ * arrays (see {@link XrefIndex}) rather than by hashing strings.
+ * <p/>
+ * Places of events are registered along with xrefs, i.e. per load (see {@link #getPlaces()}).
+ * <p/>
+ * A table may be shared by several threads, e.g. when loading in parallel.
+ */
+public final class XrefTable {
+    public static final int NONE = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Indexed on id. Only written while holding lock on this table.
+    private volatile String[] names = new String[1024];
+    private int count = 0;
+
+    private final PlaceRegistry places = new PlaceRegistry();
+
+    public XrefTable() {
+    }
+
+    /**
+     * Places of events in records that use this table, see {@link Event#getPlaceId()}
+     */
+    public PlaceRegistry getPlaces() {
+        return places;
+    }
+
+    /**
+     * Maps xref to its id, assigning the next free id if xref is not previously known.
+     */
+    public int intern(String xref) {
+        Integer id = ids.get(xref);
+        if (null != id) {
+            return id;
+        }
+        return register(xref);
+    }
+
+    private synchronized int register(String xref) {
+        Integer id = ids.get(xref);
+        if (null != id) {
+            return id;
+        }
+        String[] _names = names;
+        if (count == _names.length) {
+            _names = Arrays.copyOf(_names, 2 * count);
+        }
+        _names[count] = xref;
+        names = _names;
+        ids.put(xref, count);
+        return count++;
+    }
+
+    /**
+     * Finds id of xref, without assigning one.
+     * @return id or NONE if xref has never been encountered
+     */
+    public int find(String xref) {
+        Integer id = ids.get(xref);
+        return null != id ? id : NONE;
+    }
+
+    public String name(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    /**
+     * Forgets all xrefs (and places), so that ids are handed out from 0 again. Ids obtained
+     * earlier are no longer valid, so this is only for tables that are used by one thread and
+     * hold one record at a time, e.g. when streaming (see {@link HeapStructureStore#clear()}).
+     */
+    public synchronized void clear() {
+        ids.clear();
+        Arrays.fill(names, 0, count, null);
+        count = 0;
+        places.clear();
+    }
+
+    /**
+     * Number of xrefs encountered, i.e. all ids are in [0, size())
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Determines whether data (already trimmed) in chars[start, end) is a pointer, e.g. "@I1@"
+     */
+    public static boolean isPointer(CharSequence chars, int start, int end) {
+        if (end - start < 3 || chars.charAt(start) != '@' || chars.charAt(end - 1) != '@') {
+            return false;
+        }
+        for (int i = start + 1; i < end - 1; i++) {
+            if (chars.charAt(i) == '@') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
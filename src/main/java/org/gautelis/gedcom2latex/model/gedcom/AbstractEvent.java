@@ -0,0 +1,86 @@
+package org.gautelis.gedcom2latex.model.gedcom;
+
+import org.gautelis.gedcom2latex.model.Event;
+import org.gautelis.gedcom2latex.model.GedcomDate;
+import org.gautelis.gedcom2latex.model.PlaceRegistry;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
+
+import java.util.Optional;
+
+/**
+ * Date and place of an event (e.g. BIRT or MARR), as given by
+ * <pre>
+ *     2 DATE <DATE_VALUE>
+ *     2 PLAC <PLACE_NAME>
+ * </pre>
+ * The place is registered in the {@link PlaceRegistry} of the load (see
+ * {@link org.gautelis.gedcom2latex.model.XrefTable#getPlaces()}), and the date is parsed
+ * (see {@link GedcomDate}) when first asked for.
+ */
+public abstract class AbstractEvent implements Event {
+
+    private final Tag tag;
+    private final String description;
+
+    private final String date;
+
+    // Place as given, or null if it is the full name of its place id (i.e. in most cases)
+    private final String place;
+    private final int placeId;
+    private final PlaceRegistry places;
+
+    // Packed date, parsed when first asked for
+    private volatile long dateValue = UNPARSED;
+
+    /**
+     * @param tag tag of event, e.g. BIRT
+     * @param description of event, e.g. "birth"
+     */
+    protected AbstractEvent(Tag tag, String description, Structure structure) {
+        this.tag = tag;
+        this.description = description;
+
+        date = structure.getNestedData(Tag.DATE, "");
+        String _place = structure.getNestedData(Tag.PLAC, "");
+        places = structure.getStore().getXrefs().getPlaces();
+        placeId = places.intern(_place);
+        place = _place.equals(places.getFullName(placeId)) ? null : _place;
+    }
+
+    public Tag getTag() {
+        return tag;
+    }
+
+    public Optional<String> getDate() {
+        return Optional.ofNullable(date);
+    }
+
+    public Optional<String> getPlace() {
+        return Optional.of(null != place ? place : places.getFullName(placeId));
+    }
+
+    public int getPlaceId() {
+        return placeId;
+    }
+
+    public PlaceRegistry getPlaces() {
+        return places;
+    }
+
+    public long getDateValue() {
+        long _dateValue = dateValue;
+        if (_dateValue == UNPARSED) {
+            dateValue = _dateValue = GedcomDate.parse(date);
+        }
+        return _dateValue;
+    }
+
+    public String toString() {
+        StringBuffer buf = new StringBuffer("[").append(tag.name()).append(" (").append(description).append(")");
+        buf.append(" date=").append(null != date ? date : "");
+        buf.append(" place=").append(getPlace().orElse(""));
+        buf.append("]");
+        return buf.toString();
+    }
+}
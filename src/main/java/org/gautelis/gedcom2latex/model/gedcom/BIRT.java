@@ -1,9 +1,7 @@
 package org.gautelis.gedcom2latex.model.gedcom;
 
-import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
-
-import java.util.Optional;
+import org.gautelis.gedcom2latex.model.Tag;
 
 /**
  * A GEDCOM BIRT (Birth) record.
@@ -34,32 +32,9 @@ import java.util.Optional;
  *     2 FAMC @<XREF:FAM>@
   * </pre>
  */
-public class BIRT implements Record {
-
-    private final String date;
-
-    private final String place;
-
+public class BIRT extends AbstractEvent {
 
     public BIRT(Structure structure) {
-        date = structure.getNestedData("DATE", "");
-        place = structure.getNestedData("PLAC", "");
-     }
-
-    public Optional<String> getDate() {
-        return Optional.ofNullable(date);
-    }
-
-    public Optional<String> getPlace() {
-        return Optional.ofNullable(place);
-    }
-
-
-    public String toString() {
-        StringBuffer buf = new StringBuffer("[BIRT (birth)");
-        buf.append(" date=").append(null != date ? date : "");
-        buf.append(" place=").append(null != place ? place : "");
-         buf.append("]");
-        return buf.toString();
+        super(Tag.BIRT, "birth", structure);
     }
 }
@@ -1,9 +1,7 @@
 package org.gautelis.gedcom2latex.model.gedcom;
 
-import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
-
-import java.util.Optional;
+import org.gautelis.gedcom2latex.model.Tag;
 
 /**
  * A GEDCOM BURI (Buried) record.
@@ -34,32 +32,9 @@ import java.util.Optional;
  *     2 FAMC @<XREF:FAM>@
   * </pre>
  */
-public class BURI implements Record {
-
-    private final String date;
-
-    private final String place;
-
+public class BURI extends AbstractEvent {
 
     public BURI(Structure structure) {
-        date = structure.getNestedData("DATE", "");
-        place = structure.getNestedData("PLAC", "");
-     }
-
-    public Optional<String> getDate() {
-        return Optional.ofNullable(date);
-    }
-
-    public Optional<String> getPlace() {
-        return Optional.ofNullable(place);
-    }
-
-
-    public String toString() {
-        StringBuffer buf = new StringBuffer("[BURI (buried)");
-        buf.append(" date=").append(null != date ? date : "");
-        buf.append(" place=").append(null != place ? place : "");
-         buf.append("]");
-        return buf.toString();
+        super(Tag.BURI, "buried", structure);
     }
 }
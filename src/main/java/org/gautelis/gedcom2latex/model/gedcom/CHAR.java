@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 /**
  * A GEDCOM CHAR record.
@@ -18,7 +19,15 @@ public class CHAR implements Record {
 
     public CHAR(Structure structure) {
         characterSet = structure.getData("");
-        versionNumber = structure.getNestedData("VERS", "");
+        versionNumber = structure.getNestedData(Tag.VERS, "");
+    }
+
+    public String getCharacterSet() {
+        return characterSet;
+    }
+
+    public String getVersionNumber() {
+        return versionNumber;
     }
 
     public String toString() {
@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -29,7 +30,7 @@ public class DATA implements Record {
     private final Collection<TEXT> text = new ArrayList<>();
 
     public DATA(Structure structure) {
-        Collection<Structure> _text = structure.getNestedStructures("TEXT");
+        Collection<Structure> _text = structure.getNestedStructures(Tag.TEXT);
         _text.stream().map(TEXT::new).forEach(text::add);
     }
 
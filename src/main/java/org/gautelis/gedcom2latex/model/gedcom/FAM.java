@@ -2,8 +2,11 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
+import org.gautelis.gedcom2latex.model.XrefTable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 
@@ -73,47 +76,125 @@ import java.util.Optional;
  */
 public class FAM implements Record {
 
+    private final Structure structure;
     private final String id;
-    private final String husbandId;
-    private final String wifeId;
-    private final Collection<String> childrenId = new ArrayList<>();
+    private final int ref;
+    private final int husbandRef;
+    private final int wifeRef;
+    private final int[] childrenRef;
+
+    // Pointers (as strings) are only needed when printing, so they are fetched when first asked for
+    private volatile Collection<String> childrenId;
+
+    // Whether nested structures are kept once wrapped, which they are not if the record is lazy (see Structure#isLazy)
+    private final boolean isKept;
+
+    // Nested structures are wrapped when first asked for
+    private volatile Collection<MARR> marriages;
 
     public FAM(Structure structure) {
+        this.structure = structure;
+
         Optional<String> _id = structure.getPointer();
         id = _id.orElse("<unknown>");
+        ref = structure.getXref();
+        isKept = !structure.isLazy();
 
-        husbandId = structure.getNestedData("HUSB", null);
-        wifeId = structure.getNestedData("WIFE", null);
+        husbandRef = structure.getNestedDataXref(Tag.HUSB);
+        wifeRef = structure.getNestedDataXref(Tag.WIFE);
 
-        Collection<Structure> _children = structure.getNestedStructures("CHIL");
+        Collection<Structure> _children = structure.getNestedStructures(Tag.CHIL);
+        int[] _childrenRef = new int[_children.size()];
+        int count = 0;
         for (Structure _child : _children) {
-            Optional<String> childId = _child.getData();
-            childId.ifPresent(childrenId::add);
+            if (_child.getDataXref() != XrefTable.NONE) {
+                _childrenRef[count++] = _child.getDataXref();
+            }
         }
+        childrenRef = Arrays.copyOf(_childrenRef, count);
+    }
+
+    /**
+     * The FAM of a structure, which is created once and then kept with the record if the structure
+     * is a record in the index (see {@link org.gautelis.gedcom2latex.model.RecordStructure})
+     */
+    public static FAM of(Structure structure) {
+        return structure.getRecord(FAM.class, FAM::new);
     }
 
     public String getId() {
         return id;
     }
 
+    /**
+     * Id of pointer, see {@link XrefTable}
+     */
+    public int getRef() {
+        return ref;
+    }
+
+    /**
+     * @return id of husband pointer, or XrefTable.NONE
+     */
+    public int getHusbandRef() {
+        return husbandRef;
+    }
+
+    /**
+     * @return id of wife pointer, or XrefTable.NONE
+     */
+    public int getWifeRef() {
+        return wifeRef;
+    }
+
+    /**
+     * Ids of children pointers, in document order. Not to be modified.
+     */
+    public int[] getChildrenRef() {
+        return childrenRef;
+    }
+
     public Optional<String> getHusbandId() {
-        return Optional.ofNullable(husbandId);
+        return structure.getNestedData(Tag.HUSB);
     }
 
     public Optional<String> getWifeId() {
-        return Optional.ofNullable(wifeId);
+        return structure.getNestedData(Tag.WIFE);
     }
 
     public Collection<String> getChildrenId() {
-        return childrenId;
+        Collection<String> _childrenId = childrenId;
+        if (null == _childrenId) {
+            _childrenId = new ArrayList<>();
+            for (Structure _child : structure.getNestedStructures(Tag.CHIL)) {
+                _child.getData().ifPresent(_childrenId::add);
+            }
+            childrenId = _childrenId;
+        }
+        return _childrenId;
+    }
+
+    public Collection<MARR> MARR() {
+        Collection<MARR> _marriages = marriages;
+        if (null == _marriages) {
+            Collection<Structure> nested = structure.getNestedStructures(Tag.MARR);
+            _marriages = new ArrayList<>(nested.size());
+            for (Structure _nested : nested) {
+                _marriages.add(new MARR(_nested));
+            }
+            if (isKept) {
+                marriages = _marriages;
+            }
+        }
+        return _marriages;
     }
 
     public String toString() {
         StringBuilder buf = new StringBuilder("[FAM (family)");
         buf.append(" id=").append(null != id ? id : "");
-        buf.append(" husband=").append(husbandId);
-        buf.append(" wife=").append(wifeId);
-        for (String childId : childrenId) {
+        buf.append(" husband=").append(getHusbandId().orElse(null));
+        buf.append(" wife=").append(getWifeId().orElse(null));
+        for (String childId : getChildrenId()) {
             buf.append(" child=").append(childId);
         }
         buf.append("]");
@@ -19,16 +19,25 @@ import java.util.Optional;
 public class FAMC implements Record {
 
     private final String familyId;
+    private final int familyRef;
 
     public FAMC(Structure structure) {
         Optional<String> _familyId = structure.getData();
         familyId = _familyId.orElse("<unknown>");
+        familyRef = structure.getDataXref();
     }
 
     public String getFamilyId() {
         return familyId;
     }
 
+    /**
+     * Id of family pointer, see {@link org.gautelis.gedcom2latex.model.XrefTable}
+     */
+    public int getFamilyRef() {
+        return familyRef;
+    }
+
     public String toString() {
         StringBuffer buf = new StringBuffer("[FAMC (child-to-family)");
         buf.append(" id=").append(null != familyId ? familyId : "");
@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -28,10 +29,10 @@ public class FILE implements Record {
         Optional<String> _name = structure.getData();
         reference = _name.orElse("<unknown>");
 
-        Optional<Structure> _title = structure.getNestedStructure("TITL");
+        Optional<Structure> _title = structure.getNestedStructure(Tag.TITL);
         title = _title.map(value -> value.getData("")).orElse(null);
 
-        Collection<Structure> _formats = structure.getNestedStructures("FORM");
+        Collection<Structure> _formats = structure.getNestedStructures(Tag.FORM);
         _formats.stream().map(FORM::new).forEach(formats::add);
     }
 
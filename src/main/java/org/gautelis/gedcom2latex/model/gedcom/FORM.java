@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.Optional;
 
@@ -23,7 +24,7 @@ public class FORM implements Record {
         Optional<String> _name = structure.getData();
         format = _name.orElse("<unknown>");
 
-        Optional<Structure> _type = structure.getNestedStructure("TYPE");
+        Optional<Structure> _type = structure.getNestedStructure(Tag.TYPE);
         type = _type.map(value -> value.getData("")).orElse(null);
     }
 
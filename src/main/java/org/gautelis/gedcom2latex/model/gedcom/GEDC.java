@@ -1,6 +1,7 @@
 package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 
 /**
@@ -18,8 +19,8 @@ public class GEDC {
     private final String gedcomForm;
 
     public GEDC(Structure structure) {
-        versionNumber = structure.getNestedData("VERS","<unknown>");
-        gedcomForm = structure.getNestedData("FORM","<unknown>");
+        versionNumber = structure.getNestedData(Tag.VERS,"<unknown>");
+        gedcomForm = structure.getNestedData(Tag.FORM,"<unknown>");
     }
 
     public String getVersionNumber() {
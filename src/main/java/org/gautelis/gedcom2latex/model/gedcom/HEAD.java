@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.Optional;
 
@@ -44,10 +45,10 @@ public class HEAD implements Record {
     private final CHAR characterSet;
 
     public HEAD(Structure structure) {
-        Optional<Structure> _gedc = structure.getNestedStructure("GEDC");
+        Optional<Structure> _gedc = structure.getNestedStructure(Tag.GEDC);
         gedc = _gedc.map(GEDC::new).orElse(null);
 
-        Optional<Structure> _char = structure.getNestedStructure("CHAR");
+        Optional<Structure> _char = structure.getNestedStructure(Tag.CHAR);
         characterSet = _char.map(CHAR::new).orElse(null);
 
 
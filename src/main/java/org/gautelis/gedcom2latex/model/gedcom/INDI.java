@@ -2,8 +2,10 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * A GEDCOM INDI (Individual) record.
@@ -109,104 +111,173 @@ import java.util.*;
  */
 public class INDI implements Record {
 
-
+    private final Structure structure;
     private final String id;
-    private final Collection<NAME> names = new ArrayList<>();
-    private final SEX sex;
-    private final Collection<BIRT> births = new ArrayList<>();
-    private final Collection<CHR> baptisms = new ArrayList<>();
-    private final Collection<DEAT> deaths = new ArrayList<>();
-    private final Collection<BURI> burials = new ArrayList<>();
-    private final Collection<FAMC> childToFamilyLinks = new ArrayList<>(); // Child to family links
-    private final Collection<FAMS> spouseToFamilyLinks = new ArrayList<>(); // Spouse to family links
-    private final Collection<OBJE> multimediaRecords = new ArrayList<>();
-    private final Collection<SOUR> sources = new ArrayList<>();
+    private final int ref;
 
+    // Whether nested structures are kept once wrapped, which they are not if the record is lazy (see Structure#isLazy)
+    private final boolean isKept;
 
+    // Nested structures are wrapped when first asked for
+    private volatile SEX sex;
+    private volatile Collection<NAME> names;
+    private volatile Collection<BIRT> births;
+    private volatile Collection<CHR> baptisms;
+    private volatile Collection<DEAT> deaths;
+    private volatile Collection<BURI> burials;
+    private volatile Collection<FAMC> childToFamilyLinks; // Child to family links
+    private volatile Collection<FAMS> spouseToFamilyLinks; // Spouse to family links
+    private volatile Collection<OBJE> multimediaRecords;
+    private volatile Collection<SOUR> sources;
 
     public INDI(Structure structure) {
+        this.structure = structure;
+
         Optional<String> _id = structure.getPointer();
         id = _id.orElse("<unknown>");
+        ref = structure.getXref();
+        isKept = !structure.isLazy();
+    }
 
-        sex = SEX.from(structure.getNestedData("SEX", "U"));
-
-        Collection<Structure> _births = structure.getNestedStructures("BIRT");
-        _births.stream().map(BIRT::new).forEach(births::add);
-
-        Collection<Structure> _baptisms = structure.getNestedStructures("CHR");
-        _baptisms.stream().map(CHR::new).forEach(baptisms::add);
-
-        Collection<Structure> _deaths = structure.getNestedStructures("DEAT");
-        _deaths.stream().map(DEAT::new).forEach(deaths::add);
-
-        Collection<Structure> _burials = structure.getNestedStructures("BURI");
-        _burials.stream().map(BURI::new).forEach(burials::add);
-
-        Collection<Structure> _names = structure.getNestedStructures("NAME");
-        _names.stream().map(NAME::new).forEach(names::add);
-
-        Collection<Structure> _childToFamilyLinks = structure.getNestedStructures("FAMC");
-        _childToFamilyLinks.stream().map(FAMC::new).forEach(childToFamilyLinks::add);
-
-        Collection<Structure> _spouseToFamilyLinks = structure.getNestedStructures("FAMS");
-        _spouseToFamilyLinks.stream().map(FAMS::new).forEach(spouseToFamilyLinks::add);
-
-        Collection<Structure> _multimediaRecords = structure.getNestedStructures("OBJE");
-        _multimediaRecords.stream().map(OBJE::new).forEach(multimediaRecords::add);
-
-        Collection<Structure> _sources = structure.getNestedStructures("SOUR");
-        _sources.stream().map(SOUR::new).forEach(sources::add);
+    /**
+     * The INDI of a structure, which is created once and then kept with the record if the structure
+     * is a record in the index (see {@link org.gautelis.gedcom2latex.model.RecordStructure})
+     */
+    public static INDI of(Structure structure) {
+        return structure.getRecord(INDI.class, INDI::new);
+    }
 
+    private <T> Collection<T> wrap(Tag tag, Function<Structure, T> wrapper) {
+        Collection<Structure> nested = structure.getNestedStructures(tag);
+        Collection<T> wrapped = new ArrayList<>(nested.size());
+        for (Structure _nested : nested) {
+            wrapped.add(wrapper.apply(_nested));
+        }
+        return wrapped;
     }
 
     public String getId() {
         return id;
     }
 
+    /**
+     * Id of pointer, see {@link org.gautelis.gedcom2latex.model.XrefTable}
+     */
+    public int getRef() {
+        return ref;
+    }
+
     public SEX getSex() {
-        return sex;
+        SEX _sex = sex;
+        if (null == _sex) {
+            sex = _sex = SEX.from(structure.getNestedData(Tag.SEX, "U"));
+        }
+        return _sex;
     }
 
     public Collection<NAME> NAME() {
-        return names;
+        Collection<NAME> _names = names;
+        if (null == _names) {
+            _names = wrap(Tag.NAME, NAME::new);
+            if (isKept) {
+                names = _names;
+            }
+        }
+        return _names;
     }
 
     public Collection<BIRT> BIRT() {
-        return births;
+        Collection<BIRT> _births = births;
+        if (null == _births) {
+            _births = wrap(Tag.BIRT, BIRT::new);
+            if (isKept) {
+                births = _births;
+            }
+        }
+        return _births;
     }
 
     public Collection<CHR> CHR() {
-        return baptisms;
+        Collection<CHR> _baptisms = baptisms;
+        if (null == _baptisms) {
+            _baptisms = wrap(Tag.CHR, CHR::new);
+            if (isKept) {
+                baptisms = _baptisms;
+            }
+        }
+        return _baptisms;
     }
 
     public Collection<DEAT> DEAT() {
-        return deaths;
+        Collection<DEAT> _deaths = deaths;
+        if (null == _deaths) {
+            _deaths = wrap(Tag.DEAT, DEAT::new);
+            if (isKept) {
+                deaths = _deaths;
+            }
+        }
+        return _deaths;
     }
 
     public Collection<BURI> BURI() {
-        return burials;
+        Collection<BURI> _burials = burials;
+        if (null == _burials) {
+            _burials = wrap(Tag.BURI, BURI::new);
+            if (isKept) {
+                burials = _burials;
+            }
+        }
+        return _burials;
     }
 
     public Collection<FAMC> FAMC() {
-        return childToFamilyLinks;
+        Collection<FAMC> _childToFamilyLinks = childToFamilyLinks;
+        if (null == _childToFamilyLinks) {
+            _childToFamilyLinks = wrap(Tag.FAMC, FAMC::new);
+            if (isKept) {
+                childToFamilyLinks = _childToFamilyLinks;
+            }
+        }
+        return _childToFamilyLinks;
     }
 
     public Collection<FAMS> FAMS() {
-        return spouseToFamilyLinks;
+        Collection<FAMS> _spouseToFamilyLinks = spouseToFamilyLinks;
+        if (null == _spouseToFamilyLinks) {
+            _spouseToFamilyLinks = wrap(Tag.FAMS, FAMS::new);
+            if (isKept) {
+                spouseToFamilyLinks = _spouseToFamilyLinks;
+            }
+        }
+        return _spouseToFamilyLinks;
     }
 
     public Collection<OBJE> OBJE() {
-        return multimediaRecords;
+        Collection<OBJE> _multimediaRecords = multimediaRecords;
+        if (null == _multimediaRecords) {
+            _multimediaRecords = wrap(Tag.OBJE, OBJE::new);
+            if (isKept) {
+                multimediaRecords = _multimediaRecords;
+            }
+        }
+        return _multimediaRecords;
     }
 
     public Collection<SOUR> SOUR() {
-        return sources;
+        Collection<SOUR> _sources = sources;
+        if (null == _sources) {
+            _sources = wrap(Tag.SOUR, SOUR::new);
+            if (isKept) {
+                sources = _sources;
+            }
+        }
+        return _sources;
     }
 
     public String toString() {
         StringBuffer buf = new StringBuffer("[INDI (individual)");
         buf.append(" id=").append(null != id ? id : "");
-        buf.append(" sex=").append(sex.name()).append(" ");
+        buf.append(" sex=").append(getSex().name()).append(" ");
         NAME().forEach(buf::append);
         BIRT().forEach(buf::append);
         CHR().forEach(buf::append);
@@ -0,0 +1,33 @@
+package org.gautelis.gedcom2latex.model.gedcom;
+
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
+
+/**
+ * A GEDCOM MARR (Marriage) record.
+ * <p/>
+ * <pre>
+ *   1 MARR [Y|<NULL>]
+ *     2 HUSB
+ *       3 AGE <AGE_AT_EVENT>
+ *     2 WIFE
+ *       3 AGE <AGE_AT_EVENT>
+ *     2 TYPE <EVENT_OR_FACT_CLASSIFICATION>
+ *     2 DATE <DATE_VALUE>
+ *     2 <<PLACE_STRUCTURE>>
+ *     2 <<ADDRESS_STRUCTURE>>
+ *     2 AGNC <RESPONSIBLE_AGENCY>
+ *     2 RELI <RELIGIOUS_AFFILIATION>
+ *     2 CAUS <CAUSE_OF_EVENT>
+ *     2 RESN <RESTRICTION_NOTICE>
+ *     2 <<NOTE_STRUCTURE>>
+ *     2 <<SOURCE_CITATION>>
+ *     2 <<MULTIMEDIA_LINK>>
+ * </pre>
+ */
+public class MARR extends AbstractEvent {
+
+    public MARR(Structure structure) {
+        super(Tag.MARR, "marriage", structure);
+    }
+}
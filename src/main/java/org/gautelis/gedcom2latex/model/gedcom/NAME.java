@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.Optional;
 
@@ -38,10 +39,10 @@ public class NAME implements Record {
         Optional<String> _name = structure.getData();
         name = _name.orElse("<unknown>");
 
-        Optional<Structure> _givn = structure.getNestedStructure("GIVN");
+        Optional<Structure> _givn = structure.getNestedStructure(Tag.GIVN);
         givenName = _givn.map(value -> value.getData("")).orElse(null);
 
-        Optional<Structure> _surn = structure.getNestedStructure("SURN");
+        Optional<Structure> _surn = structure.getNestedStructure(Tag.SURN);
         surname = _surn.map(value -> value.getData("")).orElse(null);
     }
 
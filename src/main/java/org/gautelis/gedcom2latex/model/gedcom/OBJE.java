@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -94,7 +95,7 @@ public class OBJE implements Record {
         Optional<String> _id = structure.getPointer();
         id = _id.orElse(null);
 
-        Collection<Structure> _files = structure.getNestedStructures("FILE");
+        Collection<Structure> _files = structure.getNestedStructures(Tag.FILE);
         _files.stream().map(FILE::new).forEach(files::add);
     }
 
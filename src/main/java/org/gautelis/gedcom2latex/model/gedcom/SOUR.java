@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,7 +32,7 @@ public class SOUR implements Record {
         Optional<String> _sourceId = structure.getData();
         sourceId = _sourceId.orElse("<unknown>");
 
-        Collection<Structure> _data = structure.getNestedStructures("DATA");
+        Collection<Structure> _data = structure.getNestedStructures(Tag.DATA);
         _data.stream().map(DATA::new).forEach(data::add);
     }
 
@@ -2,6 +2,7 @@ package org.gautelis.gedcom2latex.model.gedcom;
 
 import org.gautelis.gedcom2latex.model.Record;
 import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
 import org.jsoup.Jsoup;
 
 import java.util.ArrayList;
@@ -30,10 +31,10 @@ public class TEXT implements Record {
         Optional<String> _text = structure.getData();
         _text.ifPresent(text::add);
 
-        Collection<Structure> _nested = structure.getNestedStructures("CONC");
+        Collection<Structure> _nested = structure.getNestedStructures(Tag.CONC);
         _nested.stream().map(Structure::getData).forEach(_d -> _d.ifPresent(text::add));
 
-        _nested = structure.getNestedStructures("CONT");
+        _nested = structure.getNestedStructures(Tag.CONT);
         _nested.stream().map(Structure::getData).forEach(_d -> _d.ifPresent(text::add));
     }
 
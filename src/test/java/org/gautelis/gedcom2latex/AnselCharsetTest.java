@@ -0,0 +1,195 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.Tag;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.Normalizer;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class AnselCharsetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String decode(int... bytes) throws CharacterCodingException {
+        byte[] _bytes = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            _bytes[i] = (byte) bytes[i];
+        }
+        return AnselCharset.INSTANCE.newDecoder().decode(ByteBuffer.wrap(_bytes)).toString();
+    }
+
+    @Test
+    public void testAscii() throws CharacterCodingException {
+        assertEquals("0 HEAD", decode('0', ' ', 'H', 'E', 'A', 'D'));
+    }
+
+    @Test
+    public void testSpacingCharacters() throws CharacterCodingException {
+        assertEquals("Ø", decode(0xA2)); // Ø
+        assertEquals("ø", decode(0xB2)); // ø
+        assertEquals("Strøm", decode('S', 't', 'r', 0xB2, 'm'));
+        assertEquals("ß", decode(0xCF)); // ß (GEDCOM)
+        assertEquals("\uFFFD", decode(0x80));
+    }
+
+    @Test
+    public void testDiacritics() throws CharacterCodingException {
+        // Diacritic precedes the character it modifies, and is composed with it
+        assertEquals("ö", decode(0xE8, 'o')); // ö
+        assertEquals("Lökken", decode('L', 0xE8, 'o', 'k', 'k', 'e', 'n'));
+        assertEquals("Åse", decode(0xEA, 'A', 's', 'e')); // Åse
+
+        // Several diacritics, where composition follows Unicode (NFC)
+        String decoded = decode(0xE2, 0xE8, 'u');
+        assertEquals(Normalizer.normalize("u\u0301\u0308", Normalizer.Form.NFC), decoded);
+        assertTrue(Normalizer.isNormalized(decoded, Normalizer.Form.NFC));
+
+        // No precomposed character
+        assertEquals("q\u0308", decode(0xE8, 'q'));
+    }
+
+    @Test
+    public void testDiacriticBeforeLineTerminator() throws CharacterCodingException {
+        assertEquals("a\u0308\r\nb", decode('a', 0xE8, '\r', '\n', 'b'));
+        assertEquals("\u0301\n", decode(0xE2, '\n'));
+    }
+
+    @Test
+    public void testTrailingDiacriticIsFlushed() {
+        CharsetDecoder decoder = AnselCharset.INSTANCE.newDecoder();
+        CharBuffer out = CharBuffer.allocate(16);
+
+        assertEquals(CoderResult.UNDERFLOW, decoder.decode(ByteBuffer.wrap(new byte[] { 'a', (byte) 0xE8 }), out, true));
+        assertEquals("a", out.flip().toString());
+
+        out.clear();
+        assertEquals(CoderResult.UNDERFLOW, decoder.flush(out));
+        assertEquals("\u0308", out.flip().toString());
+    }
+
+    @Test
+    public void testDiacriticAcrossBuffers() {
+        CharsetDecoder decoder = AnselCharset.INSTANCE.newDecoder();
+        CharBuffer out = CharBuffer.allocate(16);
+        decoder.decode(ByteBuffer.wrap(new byte[] { 'B', (byte) 0xE8 }), out, false);
+        decoder.decode(ByteBuffer.wrap(new byte[] { 'o', 'r' }), out, true);
+        decoder.flush(out);
+        assertEquals("Bör", out.flip().toString());
+    }
+
+    @Test
+    public void testOverflow() {
+        // Room for the first char only, so the composed char is decoded once there is room
+        CharsetDecoder decoder = AnselCharset.INSTANCE.newDecoder();
+        ByteBuffer in = ByteBuffer.wrap(new byte[] { 'x', (byte) 0xE8, 'o' });
+        CharBuffer out = CharBuffer.allocate(1);
+        assertEquals(CoderResult.OVERFLOW, decoder.decode(in, out, true));
+        assertEquals("x", out.flip().toString());
+
+        out = CharBuffer.allocate(4);
+        assertEquals(CoderResult.UNDERFLOW, decoder.decode(in, out, true));
+        decoder.flush(out);
+        assertEquals("ö", out.flip().toString());
+    }
+
+    // Characters (of the generated file) that are spacing characters in ANSEL
+    private static final Map<Character, Integer> SPACING = Map.of(
+            'Ø', 0xA2, 'ø', 0xB2, 'Æ', 0xA5, 'æ', 0xB5, 'ß', 0xC7
+    );
+
+    // Diacritics (of the generated file) as ANSEL combining diacritics
+    private static final Map<Character, Integer> DIACRITICS = Map.of(
+            '\u0300', 0xE1, '\u0301', 0xE2, '\u0302', 0xE3, '\u0308', 0xE8, '\u030A', 0xEA, '\u0327', 0xF0
+    );
+
+    /**
+     * Encodes text as ANSEL, with CRLF line terminators
+     */
+    private static byte[] toAnsel(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (String line : text.split("\n", -1)) {
+            if (bytes.size() > 0) {
+                bytes.write('\r');
+                bytes.write('\n');
+            }
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c < 0x80) {
+                    bytes.write(c);
+                } else if (SPACING.containsKey(c)) {
+                    bytes.write(SPACING.get(c));
+                } else {
+                    String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                    assertTrue("Can not encode " + c, decomposed.length() > 1 && decomposed.charAt(0) < 0x80);
+                    for (int j = 1; j < decomposed.length(); j++) {
+                        Integer diacritic = DIACRITICS.get(decomposed.charAt(j));
+                        assertNotNull("Can not encode " + c, diacritic);
+                        bytes.write(diacritic);
+                    }
+                    bytes.write(decomposed.charAt(0));
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<String> describe(Map<String, Collection<Structure>> structures) {
+        List<String> described = new ArrayList<>();
+        for (String tag : new TreeSet<>(structures.keySet())) {
+            if (tag.equals(Tag.HEAD.name())) {
+                // States the character set
+                continue;
+            }
+            for (Structure structure : structures.get(tag)) {
+                StringBuffer buf = new StringBuffer();
+                structure.deepToString(buf);
+                described.add(buf.toString());
+            }
+        }
+        return described;
+    }
+
+    @Test
+    public void testGeneratedFile() throws IOException {
+        StringWriter writer = new StringWriter();
+        new GedcomGenerator(8_000).generate(writer);
+        String gedcom = writer.toString();
+
+        File utf8 = folder.newFile("utf8.ged");
+        Files.writeString(utf8.toPath(), gedcom, StandardCharsets.UTF_8);
+        File ansel = folder.newFile("ansel.ged");
+        Files.write(ansel.toPath(), toAnsel(gedcom.replace("1 CHAR UTF-8", "1 CHAR ANSEL")));
+        assertTrue("Too small to be split", ansel.length() > (2 << 20));
+
+        Map<String, Collection<Structure>> expected = new HashMap<>();
+        new Loader(new LineHandler(new HashMap<>(), expected)).load(utf8);
+
+        Map<String, Collection<Structure>> sequential = new HashMap<>();
+        new Loader(new LineHandler(new HashMap<>(), sequential)).load(ansel);
+
+        Map<String, Collection<Structure>> parallel = new HashMap<>();
+        new ParallelLoader(new HashMap<>(), parallel).load(ansel);
+
+        List<String> described = describe(expected);
+        assertTrue(described.size() > 8_000);
+        assertEquals(described, describe(sequential));
+        assertEquals(described, describe(parallel));
+    }
+}
@@ -0,0 +1,103 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LazyLoaderTest {
+
+    private static final String GEDCOM = String.join("\n",
+            "0 HEAD",
+            "1 GEDC",
+            "2 VERS 5.5.1",
+            "0 @I1@ INDI",
+            "1 NAME Ole /Hansen/",
+            "0 @I2@ INDI",
+            "1 NAME Marit /Olsdatter/",
+            "0 @I3@ INDI",
+            "1 NAME Hans /Olsen/",
+            "0 TRLR",
+            "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<String, Structure> index = new HashMap<>();
+
+    private LazyLoader load(int cacheSize) throws IOException {
+        File file = folder.newFile("lazy.ged");
+        Files.writeString(file.toPath(), GEDCOM, StandardCharsets.UTF_8);
+        LazyLoader loader = new LazyLoader(index, new HashMap<>(), new XrefTable(), HeapStructureStore::forRecord, cacheSize);
+        loader.load(file);
+        return loader;
+    }
+
+    private String name(String id) {
+        return index.get(id).getNestedData("NAME", "");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        try (LazyLoader loader = load(2)) {
+            assertEquals(0, loader.getLoads());
+
+            assertEquals("Ole /Hansen/", name("@I1@"));
+            assertEquals("Marit /Olsdatter/", name("@I2@"));
+            assertEquals(2, loader.getLoads());
+
+            // I1 is used again, so I2 is evicted when I3 is loaded
+            name("@I1@");
+            assertEquals("Hans /Olsen/", name("@I3@"));
+            assertEquals(3, loader.getLoads());
+
+            name("@I1@");
+            name("@I3@");
+            assertEquals(3, loader.getLoads());
+
+            assertEquals("Marit /Olsdatter/", name("@I2@"));
+            assertEquals(4, loader.getLoads());
+        }
+    }
+
+    @Test
+    public void testWrappersDoNotKeepLazyRecords() throws IOException {
+        try (LazyLoader loader = load(1)) {
+            INDI first = new INDI(index.get("@I1@"));
+            assertEquals("Ole /Hansen/", first.NAME().iterator().next().getName());
+            assertEquals(1, loader.getLoads());
+
+            name("@I2@");
+            assertEquals(2, loader.getLoads());
+
+            // I1 was evicted, and is loaded again rather than kept by its wrapper
+            assertEquals("Ole /Hansen/", first.NAME().iterator().next().getName());
+            assertEquals(3, loader.getLoads());
+        }
+    }
+
+    @Test
+    public void testConcurrentLoads() throws IOException {
+        try (LazyLoader loader = load(2)) {
+            List<String> ids = List.of("@I1@", "@I2@", "@I3@");
+            List<String> expected = ids.stream().map(this::name).toList();
+
+            Collections.nCopies(10_000, ids).parallelStream().forEach(_ids -> {
+                for (int i = 0; i < _ids.size(); i++) {
+                    assertEquals(expected.get(i), name(_ids.get(i)));
+                }
+            });
+        }
+    }
+}
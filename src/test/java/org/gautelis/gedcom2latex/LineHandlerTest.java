@@ -0,0 +1,78 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.HeapStructureStore;
+import org.gautelis.gedcom2latex.model.XrefTable;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class LineHandlerTest {
+
+    @Test
+    public void testStreamingKeepsXrefsBounded() throws IOException {
+        StringWriter gedcom = new StringWriter();
+        new GedcomGenerator(2_000).generate(gedcom);
+
+        Set<XrefTable> tables = new HashSet<>();
+        int[] records = { 0 };
+        int[] maxXrefs = { 0 };
+        int[] maxPlaces = { 0 };
+        Set<String> ids = new HashSet<>();
+
+        LineHandler handler = new LineHandler(record -> {
+            records[0]++;
+            XrefTable xrefs = record.getStore().getXrefs();
+            tables.add(xrefs);
+            record.getPointer().ifPresent(ids::add);
+            if ("INDI".equals(record.getTag())) {
+                // Registers places of events
+                INDI indi = new INDI(record);
+                indi.BIRT().forEach(birth -> birth.getPlaceId());
+                indi.DEAT().forEach(death -> death.getPlaceId());
+            }
+            maxXrefs[0] = Math.max(maxXrefs[0], xrefs.size());
+            maxPlaces[0] = Math.max(maxPlaces[0], xrefs.getPlaces().size());
+        });
+        new Loader(handler).load(gedcom.toString().lines());
+
+        assertTrue(records[0] > 2_000);
+        assertEquals(records[0] - 2 /* HEAD, TRLR */, ids.size());
+
+        // One table, holding the xrefs (and places) of one record at a time
+        assertEquals(1, tables.size());
+        assertTrue("max xrefs: " + maxXrefs[0], maxXrefs[0] < 20);
+        assertTrue("max places: " + maxPlaces[0], maxPlaces[0] < 20);
+    }
+
+    @Test
+    public void testSkippedLinesAreCounted() {
+        String[] gedcom = {
+                "0 HEAD",
+                "0 @I1@ INDI",
+                "1 NAME Ole /Hansen/",
+                "1 NOTE Skipped",
+                "2 CONT along with its continuation",
+                "that is split",
+                "1 SEX M",
+                "0 TRLR"
+        };
+        LineHandler handler = new LineHandler(new HashMap<>(), new HashMap<>(), null, new XrefTable(),
+                HeapStructureStore::new, Projection.deny(List.of("INDI.NOTE")));
+
+        long lines = Statistics.SHARED.getLines();
+        long nodes = Statistics.SHARED.getNodes();
+        new Loader(handler).load(Stream.of(gedcom));
+
+        assertEquals(gedcom.length, Statistics.SHARED.getLines() - lines);
+        assertEquals(gedcom.length - 3, Statistics.SHARED.getNodes() - nodes);
+    }
+}
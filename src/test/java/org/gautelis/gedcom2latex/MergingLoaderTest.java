@@ -0,0 +1,131 @@
+package org.gautelis.gedcom2latex;
+
+import org.gautelis.gedcom2latex.model.Structure;
+import org.gautelis.gedcom2latex.model.gedcom.FAM;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MergingLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write(String name, String... lines) throws IOException {
+        File file = folder.newFile(name);
+        Files.writeString(file.toPath(), String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private Path aliases(String... lines) throws IOException {
+        return write("aliases.txt", lines).toPath();
+    }
+
+    @Test
+    public void testAliasChainAcrossFiles() throws IOException {
+        List<File> files = List.of(new File("a.ged"), new File("b.ged"), new File("c.ged"));
+        List<Map<String, String>> aliases = MergingLoader.readAliases(aliases(
+                "# file xref = file xref",
+                "c.ged @I9@ = b.ged @I5@",
+                "b.ged @I5@ = a.ged @I1@",
+                "",
+                "c.ged @X:1@ = b.ged @Y@"
+        ), files);
+
+        assertEquals(3, aliases.size());
+        // Grouped with the xref of the file given first, whatever the order of lines
+        assertEquals(Map.of(), aliases.get(0));
+        assertEquals(Map.of("@I5@", "@I1@"), aliases.get(1));
+        assertEquals(Map.of("@I9@", "@I1@", "@X:1@", "@2:Y@"), aliases.get(2));
+    }
+
+    @Test
+    public void testInvalidAliases() throws IOException {
+        List<File> files = List.of(new File("a.ged"), new File("b.ged"));
+        for (String line : List.of("a.ged @I1@", "a.ged @I1@ = b.ged I2", "a.ged @I1@ = x.ged @I2@")) {
+            Path aliasFile = folder.newFolder().toPath().resolve("aliases.txt");
+            Files.writeString(aliasFile, line + "\n", StandardCharsets.UTF_8);
+            try {
+                MergingLoader.readAliases(aliasFile, files);
+                fail("Accepted: " + line);
+            } catch (IOException expected) {
+                assertTrue(expected.getMessage(), expected.getMessage().contains("at line 1"));
+            }
+        }
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        File a = write("a.ged",
+                "0 HEAD",
+                "1 SOUR a",
+                "0 @I1@ INDI",
+                "1 NAME Ole /Hansen/",
+                "1 FAMS @F1@",
+                "0 @F1@ FAM",
+                "1 HUSB @I1@",
+                "0 TRLR");
+        File b = write("b.ged",
+                "0 HEAD",
+                "1 SOUR b",
+                "0 @I5@ INDI",
+                "1 NAME Ole /Hansen/",
+                "1 FAMS @F1@",
+                "0 @I2@ INDI",
+                "1 NAME Marit /Olsdatter/",
+                "1 FAMS @F1@",
+                "0 @F1@ FAM",
+                "1 HUSB @I5@",
+                "1 WIFE @I2@",
+                "0 TRLR");
+        File c = write("c.ged",
+                "0 HEAD",
+                "1 SOUR c",
+                "0 @I9@ INDI",
+                "1 NAME Marit /Olsdatter/",
+                "0 @2:I1@ INDI",
+                "1 NAME Hans /Olsen/",
+                "1 FAMC @F1@",
+                "0 @F1@ FAM",
+                "1 WIFE @I9@",
+                "1 CHIL @2:I1@",
+                "0 TRLR");
+        Path aliasFile = aliases(
+                "b.ged @I5@ = a.ged @I1@",
+                "c.ged @I9@ = b.ged @I2@");
+
+        Map<String, Structure> index = new HashMap<>();
+        Map<String, Collection<Structure>> structures = new HashMap<>();
+        new MergingLoader(index, structures).load(List.of(a, b, c), aliasFile);
+
+        // Aliased records are skipped, and ':' in xrefs is escaped so that @2:I1@ of c.ged is not @I1@ of b.ged
+        assertEquals(Set.of("@I1@", "@F1@", "@2:I2@", "@2:F1@", "@3:2::I1@", "@3:F1@"), index.keySet());
+        assertEquals(List.of("@I1@", "@2:I2@", "@3:2::I1@"),
+                Structure.getINDIs(structures).stream().map(INDI::getId).toList());
+        assertEquals(1, structures.get("HEAD").size());
+        assertEquals("a", structures.get("HEAD").iterator().next().getNestedData("SOUR", ""));
+        assertEquals(1, structures.get("TRLR").size());
+
+        // Links to aliased records are resolved to the record kept
+        Map<String, FAM> families = new HashMap<>();
+        for (FAM fam : Structure.getFAMs(structures)) {
+            families.put(fam.getId(), fam);
+        }
+        assertEquals(Optional.of("@I1@"), families.get("@2:F1@").getHusbandId());
+        assertEquals(Optional.of("@2:I2@"), families.get("@2:F1@").getWifeId());
+        assertEquals(Optional.of("@2:I2@"), families.get("@3:F1@").getWifeId());
+        assertEquals(List.of("@3:2::I1@"), families.get("@3:F1@").getChildrenId());
+        assertEquals(index.get("@I1@").getXref(), families.get("@2:F1@").getHusbandRef());
+        assertNotEquals(families.get("@F1@").getRef(), families.get("@2:F1@").getRef());
+    }
+}
@@ -0,0 +1,58 @@
+package org.gautelis.gedcom2latex;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class XrefNamespaceTest {
+
+    @Test
+    public void testNamespace() {
+        XrefNamespace first = new XrefNamespace(null, Map.of());
+        assertEquals("@I1@", first.apply("@I1@"));
+
+        XrefNamespace second = new XrefNamespace("2", Map.of());
+        assertEquals("@2:I1@", second.apply("@I1@"));
+        assertEquals("@2:F10@", second.apply("@F10@"));
+    }
+
+    @Test
+    public void testEscaping() {
+        XrefNamespace first = new XrefNamespace(null, Map.of());
+        assertEquals("@2::I1@", first.apply("@2:I1@"));
+        assertEquals("@A::B::::C@", first.apply("@A:B::C@"));
+
+        XrefNamespace second = new XrefNamespace("2", Map.of());
+        assertEquals("@2:A::B@", second.apply("@A:B@"));
+        assertEquals("@2:2::I1@", second.apply("@2:I1@"));
+        assertEquals("@2:::I1@", second.apply("@:I1@"));
+    }
+
+    @Test
+    public void testNoCollisions() {
+        // Xrefs crafted to look like namespaced xrefs of other files
+        List<String> xrefs = List.of(
+                "@I1@", "@2:I1@", "@2::I1@", "@:I1@", "@3:I1@", "@22:I1@", "@2:2:I1@", "@I1:@", "@2@", "@2:@", "@:@"
+        );
+        Map<String, String> merged = new HashMap<>();
+        for (String namespace : Arrays.asList(null, "2", "3", "22")) {
+            XrefNamespace mapping = new XrefNamespace(namespace, Map.of());
+            for (String xref : xrefs) {
+                String key = namespace + " " + xref;
+                String previous = merged.put(mapping.apply(xref), key);
+                assertNull(key + " collides with " + previous, previous);
+            }
+        }
+        assertEquals(4 * xrefs.size(), merged.size());
+    }
+
+    @Test
+    public void testAliases() {
+        XrefNamespace third = new XrefNamespace("3", Map.of("@I7@", "@I1@", "@I8@", "@2:A::B@"));
+        assertEquals("@I1@", third.apply("@I7@"));
+        assertEquals("@2:A::B@", third.apply("@I8@"));
+        assertEquals("@3:I9@", third.apply("@I9@"));
+    }
+}
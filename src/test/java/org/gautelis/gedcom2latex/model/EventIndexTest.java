@@ -0,0 +1,167 @@
+package org.gautelis.gedcom2latex.model;
+
+import org.gautelis.gedcom2latex.LineHandler;
+import org.gautelis.gedcom2latex.Loader;
+import org.gautelis.gedcom2latex.model.gedcom.INDI;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class EventIndexTest {
+
+    private static final String[] GEDCOM = {
+            "0 HEAD",
+            "1 GEDC",
+            "2 VERS 5.5.1",
+            "0 @I1@ INDI",
+            "1 NAME Ole /Hansen/",
+            "1 BIRT",
+            "2 DATE 1750",
+            "2 PLAC Alstahaug, Nordland, Norge",
+            "1 DEAT",
+            "2 DATE 3 MAR 1800",
+            "2 PLAC Alstahaug, Nordland, Norge",
+            "1 FAMS @F1@",
+            "0 @I2@ INDI",
+            "1 NAME Marit /Olsdatter/",
+            "1 BIRT",
+            "2 DATE ABT 1755",
+            "2 PLAC Bodø, Nordland, Norge",
+            "1 FAMS @F1@",
+            "0 @I3@ INDI",
+            "1 NAME Hans /Olsen/",
+            "1 BIRT",
+            "2 DATE 12 MAR 1780",
+            "2 PLAC Oslo, Norge",
+            "1 DEAT",
+            "2 DATE BET 1850 AND 1860",
+            "2 PLAC Oslo, Norge",
+            "1 FAMC @F1@",
+            "0 @I4@ INDI",
+            "1 NAME Kari /Nilsdatter/",
+            "1 DEAT",
+            "2 DATE 1700",
+            "2 PLAC Oslo, Norge",
+            "0 @I5@ INDI",
+            "1 NAME Nils /Nilsen/",
+            "1 BIRT",
+            "2 PLAC Oslo, Norge",
+            "0 @F1@ FAM",
+            "1 HUSB @I1@",
+            "1 WIFE @I2@",
+            "1 CHIL @I3@",
+            "1 MARR",
+            "2 DATE 1778",
+            "2 PLAC Alstahaug, Nordland, Norge",
+            "0 TRLR"
+    };
+
+    private EventIndex index;
+    private PlaceRegistry places;
+
+    @Before
+    public void setUp() {
+        Map<String, Structure> records = new HashMap<>();
+        Map<String, Collection<Structure>> structures = new HashMap<>();
+        XrefTable xrefs = new XrefTable();
+        new Loader(new LineHandler(records, structures, null, xrefs, HeapStructureStore::new)).load(Stream.of(GEDCOM));
+
+        Map<String, Individual> individuals = new HashMap<>();
+        for (INDI indi : Structure.getINDIs(structures)) {
+            individuals.put(indi.getId(), new Individual(indi));
+        }
+        places = xrefs.getPlaces();
+        index = EventIndex.build(individuals, Structure.getFAMs(structures), places);
+    }
+
+    private static List<String> describe(Collection<EventIndex.Entry> entries) {
+        List<String> described = new ArrayList<>();
+        for (EventIndex.Entry entry : entries) {
+            described.add(entry.tag().name() + " " + entry.individual().getId());
+        }
+        return described;
+    }
+
+    private static List<String> ids(Collection<Individual> individuals) {
+        return individuals.stream().map(Individual::getId).toList();
+    }
+
+    @Test
+    public void testChronologicalOrder() {
+        // I5 has no dated event, and is not indexed
+        assertEquals(7, index.size());
+        assertEquals(List.of(
+                "DEAT @I4@", "BIRT @I1@", "BIRT @I2@", "MARR @I1@", "BIRT @I3@", "DEAT @I1@", "DEAT @I3@"
+        ), describe(index.getEvents()));
+
+        long previous = Long.MIN_VALUE;
+        for (EventIndex.Entry entry : index.getEvents()) {
+            assertTrue(GedcomDate.compare(previous, entry.date()) <= 0);
+            previous = entry.date();
+        }
+    }
+
+    @Test
+    public void testMarriage() {
+        EventIndex.Entry marriage = index.between(1778, 1778).get(0);
+        assertEquals(Tag.MARR, marriage.tag());
+        assertEquals("@I1@", marriage.individual().getId());
+        assertEquals("@I2@", marriage.spouse().getId());
+    }
+
+    @Test
+    public void testBetween() {
+        assertEquals(List.of("BIRT @I1@", "BIRT @I2@", "MARR @I1@", "BIRT @I3@"), describe(index.between(1750, 1780)));
+        assertEquals(List.of("DEAT @I1@"), describe(index.between(1800, 1800)));
+        assertTrue(index.between(1801, 1849).isEmpty());
+
+        // A range overlaps any year within it
+        assertEquals(List.of("DEAT @I3@"), describe(index.between(1855, 1855)));
+        assertEquals(List.of("DEAT @I3@"), describe(index.between(1860, 1900)));
+        assertTrue(index.between(1861, 1900).isEmpty());
+
+        assertEquals(index.getEvents(), index.between(-10000, 10000));
+    }
+
+    @Test
+    public void testBetweenInPlace() {
+        assertEquals(List.of("BIRT @I1@", "BIRT @I2@", "MARR @I1@", "DEAT @I1@"),
+                describe(index.between(1700, 1900, index.inPlace("Nordland"))));
+        assertEquals(List.of("BIRT @I3@"), describe(index.between(1750, 1800, index.inPlace("oslo"))));
+        assertTrue(index.between(1700, 1900, index.inPlace("Bergen")).isEmpty());
+    }
+
+    @Test
+    public void testAlive() {
+        // I1 1750-1800, I2 ABT 1755 (undated death, so at most MAX_AGE), I3 1780-BET 1850 AND 1860,
+        // I4 died 1700 (undated birth, so at most MAX_AGE)
+        assertEquals(List.of("@I2@", "@I3@"), ids(index.aliveIn(1801)));
+        assertEquals(List.of("@I1@", "@I2@", "@I3@"), ids(index.aliveIn(1800)));
+        assertEquals(List.of("@I4@"), ids(index.aliveIn(1650)));
+        assertTrue(index.aliveIn(1500).isEmpty());
+        assertEquals(List.of("@I2@", "@I3@"), ids(index.aliveIn(1855)));
+        assertEquals(List.of("@I2@"), ids(index.aliveIn(1755 + EventIndex.MAX_AGE)));
+        assertTrue(index.aliveIn(1755 + EventIndex.MAX_AGE + 1).isEmpty());
+
+        assertEquals(List.of("@I4@", "@I1@"), ids(index.aliveBetween(1700, 1750)));
+    }
+
+    @Test
+    public void testInPlace() {
+        assertEquals(List.of("BIRT @I1@", "BIRT @I2@", "MARR @I1@", "DEAT @I1@"), describe(index.in("Nordland")));
+        assertEquals(describe(index.in("Nordland")), describe(index.in("NORDLAND")));
+        assertEquals(List.of("DEAT @I4@", "BIRT @I3@", "DEAT @I3@"), describe(index.in("Oslo")));
+        assertEquals(describe(index.getEvents()), describe(index.in("Norge")));
+        assertTrue(index.in("Bergen").isEmpty());
+
+        Collection<PlaceRegistry.Place> alstahaug = places.find("Alstahaug");
+        assertEquals(1, alstahaug.size());
+        PlaceRegistry.Place place = alstahaug.iterator().next();
+        assertEquals("Alstahaug, Nordland, Norge", place.getFullName());
+        assertEquals(List.of("BIRT @I1@", "MARR @I1@", "DEAT @I1@"), describe(index.in(place)));
+    }
+}
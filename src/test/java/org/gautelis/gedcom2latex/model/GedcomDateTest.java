@@ -0,0 +1,194 @@
+package org.gautelis.gedcom2latex.model;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GedcomDateTest {
+
+    @Test
+    public void testExactDate() {
+        long date = GedcomDate.parse("12 MAR 1750");
+        assertTrue(GedcomDate.isDate(date));
+        assertEquals(GedcomDate.Calendar.GREGORIAN, GedcomDate.calendar(date));
+        assertEquals(GedcomDate.Qualifier.EXACT, GedcomDate.qualifier(date));
+        assertEquals(1750, GedcomDate.year(date));
+        assertEquals(3, GedcomDate.month(date));
+        assertEquals(12, GedcomDate.day(date));
+        assertFalse(GedcomDate.isDual(date));
+        assertFalse(GedcomDate.hasEnd(date));
+        assertEquals("12 MAR 1750", GedcomDate.toString(date));
+    }
+
+    @Test
+    public void testPartialDates() {
+        long year = GedcomDate.parse("1850");
+        assertEquals(1850, GedcomDate.year(year));
+        assertEquals(0, GedcomDate.month(year));
+        assertEquals(0, GedcomDate.day(year));
+
+        long month = GedcomDate.parse("jun 1850");
+        assertEquals(6, GedcomDate.month(month));
+        assertEquals(0, GedcomDate.day(month));
+        assertEquals("JUN 1850", GedcomDate.toString(month));
+    }
+
+    @Test
+    public void testNotDates() {
+        assertEquals(GedcomDate.NONE, GedcomDate.parse(null));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse(""));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse("(unknown)"));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse("sometime in spring"));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse("32 JAN 1850"));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse("BET 1750 AND sometime"));
+        assertEquals(GedcomDate.NONE, GedcomDate.parse("@#DUNKNOWN@ 1850"));
+        assertEquals("", GedcomDate.toString(GedcomDate.NONE));
+    }
+
+    @Test
+    public void testDualYear() {
+        long date = GedcomDate.parse("12 FEB 1750/51");
+        assertTrue(GedcomDate.isDual(date));
+        assertEquals(1751, GedcomDate.year(date));
+        assertEquals("12 FEB 1750/51", GedcomDate.toString(date));
+
+        // Kept as the later (new style) year, so ordered after 1750 and before 1752
+        assertTrue(GedcomDate.compare(GedcomDate.parse("DEC 1750"), date) < 0);
+        assertTrue(GedcomDate.compare(date, GedcomDate.parse("1752")) < 0);
+
+        assertEquals("1799/00", GedcomDate.toString(GedcomDate.parse("1799/00")));
+    }
+
+    @Test
+    public void testRange() {
+        long date = GedcomDate.parse("BET 12 MAR 1750 AND 1760");
+        assertEquals(GedcomDate.Qualifier.BETWEEN, GedcomDate.qualifier(date));
+        assertTrue(GedcomDate.hasEnd(date));
+        assertEquals(1750, GedcomDate.year(date));
+        assertEquals(1760, GedcomDate.endYear(date));
+        assertEquals(0, GedcomDate.endMonth(date));
+        assertEquals("BET 12 MAR 1750 AND 1760", GedcomDate.toString(date));
+
+        // Spans from its start to the end of its end year
+        assertEquals(GedcomDate.key(1750, 3, 12), GedcomDate.startKey(date));
+        assertEquals(GedcomDate.key(1760, 15, 31), GedcomDate.endKey(date));
+    }
+
+    @Test
+    public void testPeriod() {
+        long period = GedcomDate.parse("FROM @#DJULIAN@ 1700 TO 1710");
+        assertEquals(GedcomDate.Qualifier.FROM, GedcomDate.qualifier(period));
+        assertEquals(GedcomDate.Calendar.JULIAN, GedcomDate.calendar(period));
+        assertEquals(1710, GedcomDate.endYear(period));
+        assertEquals("FROM @#DJULIAN@ 1700 TO @#DJULIAN@ 1710", GedcomDate.toString(period));
+        assertEquals(period, GedcomDate.parse(GedcomDate.toString(period)));
+
+        long from = GedcomDate.parse("FROM 1700");
+        assertEquals(GedcomDate.Qualifier.FROM, GedcomDate.qualifier(from));
+        assertFalse(GedcomDate.hasEnd(from));
+
+        long to = GedcomDate.parse("TO 1710");
+        assertEquals(GedcomDate.Qualifier.TO, GedcomDate.qualifier(to));
+        assertFalse(GedcomDate.hasEnd(to));
+    }
+
+    @Test
+    public void testDatePhrase() {
+        long date = GedcomDate.parse("INT 1 JAN 1800 (as stated in the church book)");
+        assertEquals(GedcomDate.Qualifier.INTERPRETED, GedcomDate.qualifier(date));
+        assertEquals(1800, GedcomDate.year(date));
+        assertEquals("INT 1 JAN 1800", GedcomDate.toString(date));
+    }
+
+    @Test
+    public void testCalendars() {
+        long hebrew = GedcomDate.parse("@#DHEBREW@ 5 TSH 5600");
+        assertEquals(GedcomDate.Calendar.HEBREW, GedcomDate.calendar(hebrew));
+        assertEquals(1, GedcomDate.month(hebrew));
+        assertEquals("@#DHEBREW@ 5 TSH 5600", GedcomDate.toString(hebrew));
+
+        long french = GedcomDate.parse("@#DFRENCH R@ 1 VEND 3");
+        assertEquals(GedcomDate.Calendar.FRENCH_R, GedcomDate.calendar(french));
+        assertEquals(3, GedcomDate.year(french));
+        assertEquals("@#DFRENCH R@ 1 VEND 3", GedcomDate.toString(french));
+
+        // Julian dates are converted when converted to days, whereas Gregorian dates are not
+        assertEquals(LocalDate.of(1700, 3, 12).toEpochDay(), GedcomDate.toEpochDay(GedcomDate.parse("@#DJULIAN@ 1 MAR 1700")));
+        assertEquals(LocalDate.of(1700, 3, 1).toEpochDay(), GedcomDate.toEpochDay(GedcomDate.parse("1 MAR 1700")));
+    }
+
+    @Test
+    public void testBeforeChrist() {
+        long date = GedcomDate.parse("44 B.C.");
+        assertEquals(-44, GedcomDate.year(date));
+        assertEquals("44 B.C.", GedcomDate.toString(date));
+        assertEquals(-100, GedcomDate.year(GedcomDate.parse("100 BC")));
+
+        assertTrue(GedcomDate.compare(GedcomDate.parse("100 B.C."), date) < 0);
+        assertTrue(GedcomDate.compare(date, GedcomDate.parse("1")) < 0);
+    }
+
+    @Test
+    public void testChronologicalOrder() {
+        List<String> ordered = List.of(
+                "44 B.C.",
+                "1",
+                "FROM 1700 TO 1710",
+                "1750",
+                "BEF 1750/51",
+                "BET 1750/51 AND 1760",
+                "ABT 1750/51",
+                "1750/51",
+                "AFT 1750/51",
+                "FEB 1751",
+                "1 FEB 1751",
+                "2 FEB 1751",
+                "MAR 1751",
+                "1850"
+        );
+        long[] dates = ordered.stream().mapToLong(GedcomDate::parse).toArray();
+        long[] sorted = dates.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(dates, sorted);
+
+        for (int i = 0; i + 1 < dates.length; i++) {
+            assertTrue(ordered.get(i) + " < " + ordered.get(i + 1), GedcomDate.compare(dates[i], dates[i + 1]) < 0);
+            assertTrue(ordered.get(i) + " <= " + ordered.get(i + 1), GedcomDate.startKey(dates[i]) <= GedcomDate.startKey(dates[i + 1]));
+        }
+    }
+
+    @Test
+    public void testQualifierOrder() {
+        long before = GedcomDate.parse("BEF 1850");
+        long about = GedcomDate.parse("ABT 1850");
+        long exact = GedcomDate.parse("1850");
+        long after = GedcomDate.parse("AFT 1850");
+        assertTrue(GedcomDate.compare(before, about) < 0);
+        assertTrue(GedcomDate.compare(about, exact) < 0);
+        assertTrue(GedcomDate.compare(exact, after) < 0);
+
+        // Disregarded by keys
+        assertEquals(GedcomDate.startKey(before), GedcomDate.startKey(after));
+        assertEquals(GedcomDate.endKey(before), GedcomDate.endKey(after));
+    }
+
+    @Test
+    public void testPackRoundTrip() {
+        long date = GedcomDate.pack(GedcomDate.Calendar.JULIAN, GedcomDate.Qualifier.BETWEEN,
+                1750, 3, 12, true, 1760, 11, 30);
+        assertEquals(GedcomDate.Calendar.JULIAN, GedcomDate.calendar(date));
+        assertEquals(GedcomDate.Qualifier.BETWEEN, GedcomDate.qualifier(date));
+        assertEquals(1750, GedcomDate.year(date));
+        assertEquals(3, GedcomDate.month(date));
+        assertEquals(12, GedcomDate.day(date));
+        assertTrue(GedcomDate.isDual(date));
+        assertEquals(1760, GedcomDate.endYear(date));
+        assertEquals(11, GedcomDate.endMonth(date));
+        assertEquals(30, GedcomDate.endDay(date));
+        assertEquals(GedcomDate.key(1760, 11, 30), GedcomDate.endKey(date));
+    }
+}